@@ -1,5 +1,8 @@
 #!/bin/bash
-Rscript mscconverter.R tmp.log
+# usage: genmsc.sh [log or trace files...], tmp.log by default
+# (e.g. the consoles of all the nodes, sorted by the analyzer)
+inputs="${*:-tmp.log}"
+gradle -q traceAnalyzer -PtraceArgs="-msc sequence.txt -csv log.csv $inputs"
 mscgen -T png -i sequence.txt
 rm -f log.csv
 rm -f sequence.txt
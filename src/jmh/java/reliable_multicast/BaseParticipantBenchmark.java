@@ -0,0 +1,171 @@
+package reliable_multicast;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.ActorRef;
+import reliable_multicast.messages.FlushMsg;
+import reliable_multicast.messages.Message;
+import reliable_multicast.messages.ViewChangeMsg;
+import reliable_multicast.utils.FlushTracker;
+
+/**
+ * Hot paths of the BaseParticipant handlers, parameterised by the
+ * number of members in the view and the number of unstable messages
+ * held in the buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseParticipantBenchmark {
+
+    // unstable messages in the buffer come from these senders,
+    // never used otherwise
+    private static final int BUFFER_SENDER = 1000;
+
+    @Param({"4", "64", "512"})
+    public int groupSize;
+
+    @Param({"0", "16", "256"})
+    public int bufferSize;
+
+    private BenchmarkGroup group;
+    private Participant node;
+    private ActorRef sender;
+    private View view;
+    private View nextView;
+    private ViewChangeMsg viewChange;
+    private Message delivered;
+    private int nextMessageId;
+
+    // flush round state: all flushes but the last one received
+    private Set<FlushMsg> flushes;
+    private FlushMsg lastFlush;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        group = new BenchmarkGroup(groupSize);
+        node = group.node;
+        sender = group.members.get(0);
+        view = group.view(1);
+        group.install(view);
+        fillBuffer();
+        nextView = group.view(2);
+        viewChange = new ViewChangeMsg(view, nextView);
+        delivered = new Message(2, 0, 1, false);
+        node.deliverMessage(delivered);
+        nextMessageId = 1;
+
+        flushes = new HashSet<>();
+        int id = 0;
+        for (ActorRef member : group.members)
+            flushes.add(new FlushMsg(id++, 2, member));
+        lastFlush = new FlushMsg(id, 2, group.ref);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        group.close();
+    }
+
+    private void fillBuffer() {
+        node.messagesBuffer.clear();
+        for (int i = 0; i < bufferSize; i++)
+            node.messagesBuffer.add(new Message(BUFFER_SENDER + i % 8,
+                    i, 1, false));
+    }
+
+    /**
+     * An unstable message followed by its stable version, so the
+     * buffer size doesn't change across invocations.
+     */
+    @Benchmark
+    public void receiveMessage() {
+        Message message = new Message(2, nextMessageId++, 1, false);
+        group.ref.tell(message, sender);
+        group.ref.tell(new Message(message, true), sender);
+    }
+
+    @Benchmark
+    public void deliverMessage() {
+        node.deliverMessage(new Message(3, nextMessageId++, 1, false));
+    }
+
+    @Benchmark
+    public void deliverDuplicate() {
+        node.deliverMessage(delivered);
+    }
+
+    /**
+     * Resend the unstable buffer and the flush to every member.
+     */
+    @Benchmark
+    public void viewChange(ViewChangeRound round) {
+        group.ref.tell(viewChange, sender);
+    }
+
+    /**
+     * Flushes of a whole view change collected, up to the check
+     * that all members have sent theirs.
+     */
+    @Benchmark
+    public boolean flushRound() {
+        FlushTracker tracker = new FlushTracker();
+        tracker.beginView(2, nextView.members);
+        for (FlushMsg flush : flushes)
+            tracker.add(flush.viewID, flush.sender);
+        tracker.add(lastFlush.viewID, lastFlush.sender);
+        return tracker.isComplete(2);
+    }
+
+    /**
+     * Receiving the last flush of a view change: the view is installed
+     * and the unstable buffer delivered.
+     */
+    @Benchmark
+    public void lastFlush(FlushRound round) {
+        node.onFlushMsg(lastFlush);
+    }
+
+    @State(Scope.Thread)
+    public static class ViewChangeRound {
+        @Setup(Level.Invocation)
+        public void setup(BaseParticipantBenchmark benchmark) {
+            benchmark.group.install(benchmark.view);
+            benchmark.node.flushesReceived = new FlushTracker();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FlushRound {
+        @Setup(Level.Invocation)
+        public void setup(BaseParticipantBenchmark benchmark) {
+            benchmark.group.install(benchmark.view);
+            benchmark.node.tempView = benchmark.nextView;
+            benchmark.node.flushesReceived = new FlushTracker();
+            benchmark.node.beginFlushes(benchmark.node.tempView);
+            for (FlushMsg flush : benchmark.flushes)
+                benchmark.node.flushesReceived.add(flush.viewID,
+                        flush.sender);
+            benchmark.fillBuffer();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package reliable_multicast;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.TestActorRef;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * A participant under test plus groupSize - 1 members acting as sinks
+ * for whatever it sends.
+ *
+ * The participant is created as a TestActorRef, so messages told to
+ * it are processed synchronously in the benchmark thread and its state
+ * can be set up directly.
+ */
+public class BenchmarkGroup {
+
+    public static class Sink extends AbstractActor {
+        @Override
+        public Receive createReceive() {
+            return receiveBuilder()
+                    .matchAny(msg -> {})
+                    .build();
+        }
+    }
+
+    public final ActorSystem system;
+    public final TestActorRef<Participant> ref;
+    public final Participant node;
+    // other members of the group (the node excluded)
+    public final List<ActorRef> members;
+
+    public BenchmarkGroup(int groupSize) {
+        this.system = ActorSystem.create("benchmark",
+                ConfigFactory.parseString(
+                        "akka.scheduler.implementation = " +
+                        DiscardingScheduler.class.getName() + "\n" +
+                        // copies are sent right away, as no timer
+                        // would ever flush the queues of the links
+                        "participant.delay.model = zero\n" +
+                        "participant.log.level = off\n" +
+                        "akka.log-dead-letters = off\n"));
+        this.members = new ArrayList<>();
+        for (int i = 1; i < groupSize; i++)
+            members.add(system.actorOf(Props.create(Sink.class)));
+        this.ref = TestActorRef.create(system,
+                Participant.props(members.get(0), true));
+        this.node = ref.underlyingActor();
+        this.node.id = 1;
+    }
+
+    public View view(int id) {
+        Set<ActorRef> refs = new HashSet<>(members);
+        refs.add(ref);
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < refs.size(); i++)
+            ids.add(i);
+        return new View(id, refs, ids);
+    }
+
+    public void install(View view) {
+        node.view = view;
+        node.tempView = view;
+    }
+
+    public void close() throws Exception {
+        Await.result(system.terminate(), Duration.Inf());
+    }
+}
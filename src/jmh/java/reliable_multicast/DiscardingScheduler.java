@@ -0,0 +1,59 @@
+package reliable_multicast;
+
+import java.util.concurrent.ThreadFactory;
+
+import com.typesafe.config.Config;
+
+import akka.actor.Cancellable;
+import akka.actor.Scheduler;
+import akka.event.LoggingAdapter;
+import scala.concurrent.ExecutionContext;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * A scheduler that drops every task it's given.
+ *
+ * Benchmarks drive handlers millions of times, so the delayed sends
+ * they schedule would pile up in a real scheduler and dominate the
+ * measurements. Scheduling is still paid up to the call, the task is
+ * just never run.
+ */
+public class DiscardingScheduler implements Scheduler {
+
+    private static final Cancellable CANCELLED = new Cancellable() {
+        @Override
+        public boolean cancel() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    };
+
+    public DiscardingScheduler(Config config,
+            LoggingAdapter log,
+            ThreadFactory threadFactory) {
+    }
+
+    @Override
+    public Cancellable schedule(FiniteDuration initialDelay,
+            FiniteDuration interval,
+            Runnable runnable,
+            ExecutionContext executor) {
+        return CANCELLED;
+    }
+
+    @Override
+    public Cancellable scheduleOnce(FiniteDuration delay,
+            Runnable runnable,
+            ExecutionContext executor) {
+        return CANCELLED;
+    }
+
+    @Override
+    public double maxFrequency() {
+        return 1000;
+    }
+}
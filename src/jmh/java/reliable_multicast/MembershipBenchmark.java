@@ -0,0 +1,128 @@
+package reliable_multicast;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.ActorRef;
+import reliable_multicast.utils.MembershipRegistry;
+
+/**
+ * Membership bookkeeping: the id/actor registry and the view
+ * operations performed on each view change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MembershipBenchmark {
+
+    @Param({"4", "64", "512"})
+    public int groupSize;
+
+    private BenchmarkGroup group;
+    private List<ActorRef> members;
+    private MembershipRegistry processes;
+    private ActorRef last;
+    private ActorRef joining;
+    private Set<ActorRef> refs;
+    private Set<Integer> ids;
+    private View view;
+    private View sameView;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // an extra member, which will be the joining one
+        group = new BenchmarkGroup(groupSize + 1);
+        members = new ArrayList<>(group.members);
+        joining = members.remove(members.size() - 1);
+        last = members.get(members.size() - 1);
+        processes = new MembershipRegistry();
+        for (int i = 0; i < members.size(); i++)
+            processes.addIdRefAssoc(i, members.get(i));
+
+        refs = new HashSet<>(members);
+        ids = new HashSet<>(processes.getProcessesIds());
+        view = new View(1, refs, ids);
+        sameView = new View(1, refs, ids);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        group.close();
+    }
+
+    @Benchmark
+    public Integer idByActor() {
+        return processes.getIdByActor(last);
+    }
+
+    @Benchmark
+    public ActorRef actorById() {
+        return processes.getActorById(groupSize - 1);
+    }
+
+    /**
+     * A node joins the map and then leaves it.
+     */
+    @Benchmark
+    public void addRemove() {
+        processes.addIdRefAssoc(groupSize, joining);
+        processes.removeIdRefEntry(groupSize);
+    }
+
+    /**
+     * The ids of all the members, as computed by the group manager on
+     * a view change.
+     */
+    @Benchmark
+    public Set<Integer> membersIds() {
+        return processes.getIdsByActors(view.getMembers());
+    }
+
+    /**
+     * The actors of the registry, as read by the events controller
+     * on each step.
+     */
+    @Benchmark
+    public Set<ActorRef> processesActors() {
+        return processes.getProcessesActors();
+    }
+
+    /**
+     * A view built from the members and ids computed by the group
+     * manager on a view change.
+     */
+    @Benchmark
+    public View buildView() {
+        return new View(2, refs, ids);
+    }
+
+    @Benchmark
+    public boolean viewEquals() {
+        return view.equals(sameView);
+    }
+
+    @Benchmark
+    public Set<ActorRef> viewMembers() {
+        return view.getMembers();
+    }
+}
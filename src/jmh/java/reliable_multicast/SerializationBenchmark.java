@@ -0,0 +1,133 @@
+package reliable_multicast;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JavaSerializer;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.SerializerWithStringManifest;
+import akka.serialization.Serializers;
+import akka.util.ByteString;
+import reliable_multicast.messages.FlushMsg;
+import reliable_multicast.messages.Message;
+import reliable_multicast.messages.ViewChangeMsg;
+
+/**
+ * Cost of encoding and decoding the protocol messages with the
+ * protocol serializer, compared with Java serialization. The size of
+ * both encodings is printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"message", "flush", "viewChange"})
+    public String type;
+
+    private BenchmarkGroup group;
+    private Serializer protocol;
+    private Object message;
+    private String manifest;
+    private byte[] protocolBytes;
+    private byte[] javaBytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        group = new BenchmarkGroup(16);
+        switch (type) {
+        case "message":
+            message = new Message(3, 300, 7, false,
+                    ByteString.fromString("payload"));
+            break;
+        case "flush":
+            message = new FlushMsg(5, 12, group.ref);
+            break;
+        default:
+            View view = group.view(2);
+            List<ActorRef> members = new ArrayList<>(view.getMembers());
+            Set<Integer> ids = new HashSet<>(view.getMembersIds());
+            members.remove(0);
+            ids.remove(0);
+            message = new ViewChangeMsg(new View(1, members, ids), view);
+        }
+        Serialization serialization =
+                (Serialization) SerializationExtension.apply(group.system);
+        protocol = serialization.findSerializerFor(message);
+        manifest = Serializers.manifestFor(protocol,
+                message);
+        protocolBytes = protocol.toBinary(message);
+        javaBytes = javaEncode();
+        System.out.printf("%s: %d bytes, %d with Java serialization\n",
+                type, protocolBytes.length, javaBytes.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        group.close();
+    }
+
+    private byte[] javaEncode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(message);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] protocolEncode() {
+        return protocol.toBinary(message);
+    }
+
+    @Benchmark
+    public Object protocolDecode() throws Exception {
+        return ((SerializerWithStringManifest) protocol)
+                .fromBinary(protocolBytes, manifest);
+    }
+
+    @Benchmark
+    public byte[] javaSerializationEncode() throws IOException {
+        return javaEncode();
+    }
+
+    @Benchmark
+    public Object javaSerializationDecode() throws Exception {
+        // actor refs are resolved through the current system
+        Callable<Object> decode = () -> new ObjectInputStream(
+                new ByteArrayInputStream(javaBytes)).readObject();
+        return JavaSerializer.currentSystem().withValue(
+                (ExtendedActorSystem) group.system,
+                decode);
+    }
+}
@@ -0,0 +1,184 @@
+package reliable_multicast;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.util.ByteString;
+import reliable_multicast.utils.Transport;
+
+/**
+ * Multicast throughput and delivery latency of a group whose nodes
+ * run in separate ActorSystems on the loopback interface, for each
+ * remoting transport.
+ *
+ * This is not a JMH benchmark, as a run goes through a whole group.
+ * Payloads are submitted round robin to the participants, keeping at
+ * most 'inflight' of them not yet delivered by every node. Each node
+ * records the time elapsed from the submission of a payload to its
+ * delivery.
+ *
+ * Run it with 'gradle transportBenchmark', options are given through
+ * the 'benchArgs' property, e.g.
+ * gradle transportBenchmark -PbenchArgs='-n 8 -m 50000 -t artery-tcp'
+ *
+ *   -n  participants (group manager excluded, default 4)
+ *   -m  multicasts measured (default 20000)
+ *   -w  warmup multicasts (default 5000)
+ *   -i  max multicasts in flight (default 64)
+ *   -t  comma separated transports (default classic,artery-tcp,aeron-udp)
+ */
+public class TransportBenchmark {
+
+    /**
+     * Deliveries of a run of multicasts.
+     */
+    private static class Round {
+        final int multicasts;
+        final int nodes;
+        // submission time of each multicast
+        final long[] submitted;
+        // number of nodes that delivered each multicast
+        final AtomicIntegerArray deliveries;
+        // multicasts delivered by every node
+        final AtomicInteger completed;
+        // delivery latency (ns), by node then by multicast
+        final long[][] latencies;
+
+        Round(int multicasts, int nodes) {
+            this.multicasts = multicasts;
+            this.nodes = nodes;
+            this.submitted = new long[multicasts];
+            this.deliveries = new AtomicIntegerArray(multicasts);
+            this.completed = new AtomicInteger();
+            this.latencies = new long[nodes][multicasts];
+        }
+
+        // executed by the actor of the node
+        void onDeliver(int node, ByteString payload) {
+            long now = System.nanoTime();
+            ByteBuffer buffer = payload.asByteBuffer();
+            int index = buffer.getInt();
+            latencies[node][index] = now - buffer.getLong();
+            // publishes the latency to the benchmark thread
+            if (deliveries.incrementAndGet(index) == nodes)
+                completed.incrementAndGet();
+        }
+    }
+
+    private static volatile Round round;
+
+    private static long run(LocalCluster cluster,
+            Round current,
+            int inflight) {
+        round = current;
+        long start = System.nanoTime();
+        for (int i = 0; i < current.multicasts; i++) {
+            while (i - current.completed.get() >= inflight)
+                LockSupport.parkNanos(10_000);
+            long now = System.nanoTime();
+            current.submitted[i] = now;
+            ByteBuffer payload = ByteBuffer.allocate(12);
+            payload.putInt(i).putLong(now).flip();
+            cluster.participant(i % cluster.size())
+                    .submit(ByteString.fromByteBuffer(payload));
+        }
+        while (current.completed.get() < current.multicasts)
+            LockSupport.parkNanos(10_000);
+        return System.nanoTime() - start;
+    }
+
+    private static void measure(Transport transport,
+            int size,
+            int multicasts,
+            int warmup,
+            int inflight) throws Exception {
+        Config config = ConfigFactory.parseString(
+                "participant.delay.model = zero\n" +
+                "participant.log.level = off\n" +
+                "akka.loglevel = WARNING\n");
+        LocalCluster cluster = LocalCluster.start(size,
+                LocalCluster.Mode.DISTRIBUTED,
+                transport,
+                true,
+                config,
+                node -> (senderId, messageId, payload) ->
+                        round.onDeliver(node, payload),
+                60 + size * BaseParticipant.MAX_TIMEOUT);
+        try {
+            if (warmup > 0)
+                run(cluster, new Round(warmup, size + 1), inflight);
+            Round measured = new Round(multicasts, size + 1);
+            long elapsed = run(cluster, measured, inflight);
+
+            long[] samples = new long[multicasts * (size + 1)];
+            for (int node = 0; node <= size; node++)
+                System.arraycopy(measured.latencies[node], 0,
+                        samples, node * multicasts, multicasts);
+            Arrays.sort(samples);
+            System.out.printf("%-12s %6d %14.0f %12.1f %12.1f %12.1f\n",
+                    transport,
+                    size + 1,
+                    multicasts / (elapsed / 1e9),
+                    percentile(samples, 0.50) / 1e3,
+                    percentile(samples, 0.99) / 1e3,
+                    samples[samples.length - 1] / 1e3);
+        } finally {
+            cluster.shutdown();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int size = 4;
+        int multicasts = 20000;
+        int warmup = 5000;
+        int inflight = 64;
+        String transports = "classic,artery-tcp,aeron-udp";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "-n":
+                size = Integer.parseInt(args[i + 1]);
+                break;
+            case "-m":
+                multicasts = Integer.parseInt(args[i + 1]);
+                break;
+            case "-w":
+                warmup = Integer.parseInt(args[i + 1]);
+                break;
+            case "-i":
+                inflight = Integer.parseInt(args[i + 1]);
+                break;
+            case "-t":
+                transports = args[i + 1];
+                break;
+            default:
+                throw new IllegalArgumentException("unknown option: " +
+                        args[i]);
+            }
+        }
+        System.out.printf("%-12s %6s %14s %12s %12s %12s\n",
+                "transport", "nodes", "multicasts/s",
+                "p50 (us)", "p99 (us)", "max (us)");
+        for (String name : transports.split(",")) {
+            Transport transport = Transport.fromName(name);
+            try {
+                measure(transport,
+                        size, multicasts, warmup, inflight);
+            } catch (Exception | LinkageError e) {
+                // e.g. Aeron failing to start on the running JVM
+                System.out.printf("%-12s unavailable: %s\n", transport, e);
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -1,12 +1,22 @@
 import java.io.File;
 import java.io.FileReader;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import com.google.gson.Gson;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
+import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
+import reliable_multicast.BaseParticipant;
+import reliable_multicast.DeliveryListener;
 import reliable_multicast.GroupManager;
 import reliable_multicast.Participant;
+import reliable_multicast.Reaper;
+import reliable_multicast.utils.DelayModel;
+import reliable_multicast.utils.Transport;
 
 public class ReliableMulticast {
 
@@ -44,10 +54,19 @@ public class ReliableMulticast {
      * The second file defines the events file to be used
      * in the system. All nodes should call the same events
      * file in order for the execution to be meaningful.
+     *
+     * The transport property selects the remoting transport
+     * (classic, artery-tcp or aeron-udp), all nodes of a group
+     * must use the same one.
+     *
+     * A node is created for each of the groups listed in
+     * participant.groups, all in the same ActorSystem. The
+     * system terminates once all of them have stopped.
      */
     public static void main(String[] args) {
         String eventsFileName = System.getProperty("events");
         String configFilePath = System.getProperty("config.resource");
+        String transportName = System.getProperty("transport", "");
         String resourcesDir = System.getProperty("project_dir") +
                 "/src/main/resources/";
 
@@ -60,8 +79,17 @@ public class ReliableMulticast {
                     " TERMINATING...");
             System.exit(-1);
         }
+        Transport transport = null;
+        try {
+            transport = Transport.fromName(transportName);
+        } catch (IllegalArgumentException e) {
+            System.err.println("\n[ERROR]: " + e.getMessage() +
+                    "\nTERMINATING...");
+            System.exit(-1);
+        }
         // Load configuration file
-        Config config = ConfigFactory.load();
+        Config config = transport.config()
+                .withFallback(ConfigFactory.load());
 
         reliable_multicast.utils.Config eventsConf =
                 new reliable_multicast.utils.Config();
@@ -104,28 +132,56 @@ public class ReliableMulticast {
             System.exit(-1);
         }
 
+        List<Integer> groups = config.getIntList("participant.groups");
+        if (groups.isEmpty()) {
+            System.err.println("\n[ERROR]: No group defined.\n" +
+                    "TERMINATING...");
+            System.exit(-1);
+        }
+
+        try {
+            DelayModel.fromConfig(config);
+        } catch (Exception e) {
+            System.err.println("\n[ERROR]: Invalid delay model. " +
+                    e.getMessage() +
+                    "\nTERMINATING...");
+            System.exit(-1);
+        }
+
         final ActorSystem system = ActorSystem.create(SYSTEM_NAME, config);
-        if (isManager) {
-            // create group manager
-            system.actorOf(GroupManager.props(0,
-                    eventsConf.isManual_mode(),
-                    eventsConf.getUnderlyingEvents(),
-                    eventsConf.getUnderlyingSenders(),
-                    eventsConf.getUnderlyingRisen(),
-                    eventsConf.getUnderlyingViews()),
-                    GROUP_MANAGER_NAME);
-        } else {
-            String remote_ip = config.getString("participant.remote_ip");
-            String remote_port = config.getString("participant.remote_port");
-            Integer participant_id = config.getInt("participant.id");
-            String remotePath = "akka.tcp://" + SYSTEM_NAME +
-                    "@" + remote_ip + ":" + remote_port +
-                    "/user/" + GROUP_MANAGER_NAME;
-            system.actorOf(Participant.props(remotePath,
-                    eventsConf.isManual_mode()),
-                    PARTICIPANT_NAME +
-                    participant_id.toString());
+        Set<ActorRef> nodes = new HashSet<>();
+        for (int groupId : groups) {
+            if (isManager) {
+                // create group manager
+                nodes.add(system.actorOf(GroupManager.props(0,
+                        groupId,
+                        eventsConf.isManual_mode(),
+                        DeliveryListener.NONE,
+                        eventsConf.getUnderlyingEvents(),
+                        eventsConf.getUnderlyingSenders(),
+                        eventsConf.getUnderlyingRisen(),
+                        eventsConf.getUnderlyingViews()),
+                        BaseParticipant.actorName(GROUP_MANAGER_NAME,
+                                groupId)));
+            } else {
+                String remote_ip = config.getString("participant.remote_ip");
+                String remote_port = config.getString("participant.remote_port");
+                Integer participant_id = config.getInt("participant.id");
+                String remotePath = transport.protocol() + "://" +
+                        SYSTEM_NAME +
+                        "@" + remote_ip + ":" + remote_port +
+                        "/user/" +
+                        BaseParticipant.actorName(GROUP_MANAGER_NAME,
+                                groupId);
+                nodes.add(system.actorOf(Participant.props(remotePath,
+                        groupId,
+                        eventsConf.isManual_mode(),
+                        DeliveryListener.NONE),
+                        BaseParticipant.actorName(PARTICIPANT_NAME +
+                                participant_id.toString(), groupId)));
+            }
         }
+        system.actorOf(Reaper.props(nodes), "reaper");
         System.out.print("Reliable multicast started!\n");
     }
 }
@@ -1,20 +1,53 @@
 package reliable_multicast;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.management.JMException;
 
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
+import akka.actor.ExtendedActorSystem;
+import akka.util.ByteString;
+import reliable_multicast.logging.EventLog;
+import reliable_multicast.logging.Level;
+import reliable_multicast.logging.LogEvent;
+import reliable_multicast.messages.AckMsg;
 import reliable_multicast.messages.FlushMsg;
+import reliable_multicast.messages.GossipMsg;
 import reliable_multicast.messages.Message;
+import reliable_multicast.messages.PingMsg;
+import reliable_multicast.messages.PingReqMsg;
+import reliable_multicast.messages.StableMsg;
 import reliable_multicast.messages.StopMulticastMsg;
+import reliable_multicast.messages.SubmitMsg;
+import reliable_multicast.messages.SuspicionMsg;
+import reliable_multicast.messages.SwimUpdate;
 import reliable_multicast.messages.ViewChangeMsg;
+import reliable_multicast.messages.ViewSnapshotRequestMsg;
+import reliable_multicast.metrics.ParticipantMetrics;
 import reliable_multicast.utils.Config;
+import reliable_multicast.utils.DelayModel;
+import reliable_multicast.utils.DeliveryVector;
+import reliable_multicast.utils.DetectorSettings;
+import reliable_multicast.utils.FlushTracker;
+import reliable_multicast.utils.LivenessTracker;
+import reliable_multicast.utils.SwimMembership;
+import reliable_multicast.utils.UnstableBuffer;
 import scala.concurrent.duration.Duration;
 
 public abstract class BaseParticipant extends AbstractActor {
@@ -22,6 +55,80 @@ public abstract class BaseParticipant extends AbstractActor {
     // --- Messages for internal behavior ---
     public static class SendMulticastMsg implements Serializable {};
 
+    /*
+     * Sent by a node to itself when the oldest payload waiting
+     * to be batched has waited for the linger time.
+     */
+    public static class LingerExpiredMsg implements Serializable {};
+
+    /*
+     * Sent by a node to itself when the stability of its
+     * messages has to be announced with a StableMsg.
+     */
+    public static class AnnounceStableMsg implements Serializable {};
+
+    /*
+     * Sent by a node to itself once the stable copies of one
+     * of its multicasts have been sent (or, when stability is
+     * piggybacked, once its unstable copies have been sent).
+     */
+    public static class StableSentMsg implements Serializable {
+        public final int messageID;
+
+        public StableSentMsg(int messageID) {
+            this.messageID = messageID;
+        }
+    };
+
+    /*
+     * Sent by a node to itself when the head of the queue of
+     * messages scheduled for the receiver is due.
+     */
+    public static class LinkDueMsg implements Serializable {
+        public final ActorRef receiver;
+
+        public LinkDueMsg(ActorRef receiver) {
+            this.receiver = receiver;
+        }
+    };
+
+    /*
+     * Sent by a node to itself at each round of the SWIM failure
+     * detection.
+     */
+    public static class ProbeTickMsg implements Serializable {};
+
+    /*
+     * Sent by a node to itself when the member probed in the
+     * round should have answered.
+     */
+    public static class ProbeTimeoutMsg implements Serializable {
+        public final int seq;
+
+        public ProbeTimeoutMsg(int seq) {
+            this.seq = seq;
+        }
+    };
+
+    /*
+     * Used by external observers (e.g. the LocalCluster harness)
+     * to inspect the state of a node. The node answers with
+     * a StatusMsg.
+     */
+    public static class StatusRequestMsg implements Serializable {};
+
+    public static class StatusMsg implements Serializable {
+        public final int id;
+        public final View view;
+        public final View tempView;
+
+        public StatusMsg(int id, View view, View tempView) {
+            this.id = id;
+            this.view = view;
+            this.tempView = tempView;
+        }
+    };
+
     // --------------------------------------
 
     public static final int MAX_DELAY_TIME = 4;
@@ -31,6 +138,10 @@ public abstract class BaseParticipant extends AbstractActor {
             MAX_DELAY_TIME * 2 + 1;
 
     protected int id;
+    // group the node belongs to. Nodes of several groups can live
+    // in the same ActorSystem, each group with its own manager and
+    // views.
+    protected int groupId;
     protected int multicastId;
     // the set of actors that are seen by this node
     protected View view;
@@ -39,32 +150,155 @@ public abstract class BaseParticipant extends AbstractActor {
     // only when the view is effectively installed.
     protected View tempView;
     protected boolean canSend;
-    protected Set<FlushMsg> flushesReceived;
-    protected Set<Message> messagesBuffer;
+    protected FlushTracker flushesReceived;
+    // unstable messages received, per sender
+    protected UnstableBuffer messagesBuffer;
+    // members each unstable message has been resent to since
+    // the last view installed. A view change superseding the one
+    // in progress resends a message only to the members missing
+    // it: copies already sent, or still queued, remain valid.
+    private Map<Message, Set<ActorRef>> resent;
+    // payloads submitted by the application and not sent yet
+    protected Queue<ByteString> pendingPayloads;
+    protected long pendingBytes;
+    // time (microseconds) at which the oldest pending
+    // payload has been queued
+    protected long batchStart;
+    // ids of the multicasts sent by this node whose stable
+    // copies have not been sent yet. At most 'window'
+    // multicasts can be in flight.
+    protected Set<Integer> inFlight;
+    protected final int window;
+    // batching of submitted payloads: up to batchEntries
+    // payloads and batchBytes bytes are sent in a single
+    // message. A batch is sent when it's full or when its
+    // oldest payload has waited for the linger time.
+    protected final int batchEntries;
+    protected final long batchBytes;
+    protected final long linger;
+    /*
+     * When stability is piggybacked, stable copies are not
+     * sent. Instead each message carries the id up to which
+     * the messages of the sender are stable. If no message
+     * follows, the sender announces it with a StableMsg
+     * after stabilityInterval.
+     */
+    protected final boolean piggybackStability;
+    protected final long stabilityInterval;
+    protected int announcedStable;
+    private boolean announcePending;
 
     // store the status of all participants
     // from the point of view of this actor
-    protected final Map<Integer, Integer> processesDelivered;
+    protected final DeliveryVector processesDelivered;
 
     protected boolean manualMode;
 
+    // receives payloads delivered by this node
+    protected final DeliveryListener listener;
+
+    // simulated delays of the copies sent in a multicast.
+    // The model is defined in the config of the actor system.
+    protected final DelayModel delayModel;
+    // messages scheduled and not sent yet, for each receiver.
+    // Used to preserve FIFO order on links.
+    private final Map<ActorRef, Link> links;
+    // parameters of the failure detectors used to
+    // monitor other nodes
+    protected final DetectorSettings detectorSettings;
+    // nodes monitored in the central mode, fed by heartbeats
+    // and by protocol messages
+    protected final LivenessTracker liveness;
+    // events logged by the node, shared by the actors of the system
+    protected final EventLog log;
+    // counters and gauges of the node, exposed through JMX
+    // if participant.metrics.jmx is on
+    protected final ParticipantMetrics metrics;
+    private final boolean jmx;
+    // time (ns) at which the ongoing view change has started
+    private long viewChangeStart;
+
+    // --- SWIM failure detection, null in the central mode ---
+    protected final SwimMembership swim;
+    private boolean probing;
+    private int nextSeq;
+    // probe of the current round, the target is null if none
+    private int probeSeq;
+    private ActorRef probeTarget;
+    private boolean probeAcked;
+    // probes sent on behalf of other nodes, by sequence number.
+    // Probes whose target never answers are dropped eventually.
+    private final Map<Integer, Relay> relayed;
+    private static final int MAX_RELAYED = 64;
+
     protected void resetParticipant() {
         this.id = -1;
         this.multicastId = 0;
         this.canSend = false;
         this.view = new View(-1);
         this.tempView = new View(-1);
-        this.messagesBuffer = new HashSet<>();
-        this.flushesReceived = new HashSet<>();
+        this.messagesBuffer = new UnstableBuffer();
+        this.resent = new HashMap<>();
+        this.flushesReceived = new FlushTracker();
+        this.pendingPayloads = new ArrayDeque<>();
+        this.pendingBytes = 0;
+        this.batchStart = 0;
+        this.inFlight = new HashSet<>();
+        this.announcedStable = -1;
+        this.announcePending = false;
     }
 
     // ------- CONSTRUCTORS ---------------------
 
-    public BaseParticipant(boolean manualMode) {
+    public BaseParticipant(boolean manualMode, DeliveryListener listener) {
         super();
         this.resetParticipant();
         this.manualMode = manualMode;
-        this.processesDelivered = new HashMap<>();
+        this.listener = listener;
+        this.processesDelivered = new DeliveryVector();
+        com.typesafe.config.Config systemConfig = this.getContext()
+                .getSystem()
+                .settings()
+                .config();
+        this.delayModel = DelayModel.fromConfig(systemConfig);
+        this.log = EventLog.get(this.getContext().getSystem());
+        this.links = new HashMap<>();
+        this.detectorSettings = DetectorSettings.fromConfig(systemConfig);
+        this.liveness = new LivenessTracker(this.detectorSettings);
+        this.window = Math.max(systemConfig.getInt("participant.window"),
+                1);
+        this.batchEntries = Math.max(
+                systemConfig.getInt("participant.batch.max_entries"), 1);
+        this.batchBytes = systemConfig.getBytes(
+                "participant.batch.max_bytes");
+        this.linger = systemConfig.getDuration("participant.batch.linger",
+                TimeUnit.MICROSECONDS);
+        this.piggybackStability = systemConfig
+                .getString("participant.stability.mode")
+                .equals("piggyback");
+        this.stabilityInterval = systemConfig.getDuration(
+                "participant.stability.interval",
+                TimeUnit.MICROSECONDS);
+        this.swim = this.detectorSettings.swim ?
+                new SwimMembership(this.getSelf(), new Random()) :
+                null;
+        this.relayed = new LinkedHashMap<Integer, Relay>() {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Integer, Relay> eldest) {
+                return this.size() > MAX_RELAYED;
+            }
+        };
+        this.jmx = systemConfig.getBoolean("participant.metrics.jmx");
+        this.metrics = this.newMetrics(new ParticipantMetrics.Gauges(
+                () -> this.messagesBuffer.size(),
+                () -> this.flushesReceived.received(),
+                () -> this.view.id,
+                () -> this.tempView.id));
+    }
+
+    public BaseParticipant(boolean manualMode) {
+        this(manualMode, DeliveryListener.NONE);
     }
 
     public BaseParticipant(Config config) {
@@ -77,40 +311,207 @@ public abstract class BaseParticipant extends AbstractActor {
 
     // ------------------------------------------
 
-    private void updateProcessesDelivered(Integer processId,
-            Integer messageID) {
-        if (processId == -1)
+    /**
+     * Create the metrics of the node. Gauges are read from
+     * JMX threads, outside of the actor.
+     */
+    protected ParticipantMetrics newMetrics(ParticipantMetrics.Gauges gauges) {
+        return new ParticipantMetrics(gauges);
+    }
+
+    @Override
+    public void preStart() {
+        if (!this.jmx)
             return;
-        this.processesDelivered.put(processId, messageID);
+        String address = this.getSelf().path().toStringWithAddress(
+                ((ExtendedActorSystem) this.getContext().getSystem())
+                .provider()
+                .getDefaultAddress());
+        try {
+            this.metrics.register(address);
+        } catch (JMException e) {
+            this.log.log(LogEvent.METRICS_UNAVAILABLE, this.id, this.id, e);
+        }
     }
 
-    protected void removeOldFlushes(int currentView) {
-        Iterator<FlushMsg> msgIterator =
-                this.flushesReceived.iterator();
-        FlushMsg flushMsg;
-        while (msgIterator.hasNext()) {
-            flushMsg = msgIterator.next();
-            if (flushMsg.viewID < currentView)
-                msgIterator.remove();
+    @Override
+    public void postStop() {
+        try {
+            this.metrics.unregister();
+        } catch (JMException e) {
+            this.log.log(LogEvent.METRICS_UNAVAILABLE, this.id, this.id, e);
         }
     }
 
-    protected void scheduleMessage(Object message, int after, ActorRef receiver) {
-        if (message == null)
+    private void updateProcessesDelivered(int processId,
+            int messageID) {
+        if (processId == -1)
             return;
-        this.getContext()
+        this.processesDelivered.set(processId, messageID);
+    }
+
+    /**
+     * Start collecting the flushes of the given view.
+     * Flushes of previous views are discarded.
+     */
+    protected void beginFlushes(View view) {
+        this.flushesReceived.beginView(view.id, view.members);
+    }
+
+    private static long nowMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+    }
+
+    /**
+     * @return the name of an actor of the given group: the base name
+     *         for group 0, so single group deployments keep their
+     *         paths, base-group otherwise
+     */
+    public static String actorName(String baseName, int groupId) {
+        return groupId == 0 ? baseName : baseName + "-" + groupId;
+    }
+
+    /**
+     * Monotonic time in milliseconds, used to feed failure
+     * detectors.
+     */
+    protected static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Send a message after the given time (in microseconds).
+     */
+    private Cancellable schedule(Object message, long after,
+            ActorRef receiver) {
+        if (after <= 0) {
+            receiver.tell(message, this.getSelf());
+            return null;
+        }
+        return this.getContext()
         .getSystem()
         .scheduler()
         .scheduleOnce(Duration.create(after,
-                TimeUnit.SECONDS),
+                TimeUnit.MICROSECONDS),
                 receiver,
                 message,
                 getContext().system().dispatcher(),
                 this.getSelf());
     }
 
-    protected void sendInternalMessage(Object message, int time) {
-        scheduleMessage(message, time, this.getSelf());
+    /*
+     * Messages scheduled for a receiver, in sending order.
+     * Deadlines (microseconds) never decrease along the queue.
+     */
+    private static class Link {
+        final ArrayDeque<Object> messages = new ArrayDeque<>();
+        final ArrayDeque<Long> deadlines = new ArrayDeque<>();
+        boolean timerSet = false;
+        Cancellable timer = null;
+
+        /*
+         * Remove the queued messages matching the filter, the
+         * others keep their deadline.
+         */
+        void removeIf(Predicate<Object> stale) {
+            int size = this.messages.size();
+            for (int i = 0; i < size; i++) {
+                Object message = this.messages.poll();
+                Long deadline = this.deadlines.poll();
+                if (!stale.test(message)) {
+                    this.messages.add(message);
+                    this.deadlines.add(deadline);
+                }
+            }
+        }
+    }
+
+    /**
+     * Send a message to the receiver after the given time
+     * (in microseconds).
+     *
+     * Messages scheduled for the same receiver are never
+     * delivered before the ones scheduled earlier, so FIFO
+     * order on links holds whatever the delays. Timers of
+     * the scheduler may fire in any order, hence the queue
+     * of each link is flushed by the node itself and a single
+     * timer is set for its head.
+     */
+    protected void scheduleMessage(Object message, long after, ActorRef receiver) {
+        if (message == null)
+            return;
+        Link link = this.links.get(receiver);
+        if (link == null) {
+            if (after <= 0) {
+                receiver.tell(message, this.getSelf());
+                return;
+            }
+            link = new Link();
+            this.links.put(receiver, link);
+        }
+        long now = nowMicros();
+        long deadline = now + after;
+        Long last = link.deadlines.peekLast();
+        if (last != null && last > deadline)
+            deadline = last;
+        link.messages.add(message);
+        link.deadlines.add(deadline);
+        if (!link.timerSet) {
+            link.timerSet = true;
+            link.timer = schedule(new LinkDueMsg(receiver),
+                    link.deadlines.peek() - now,
+                    this.getSelf());
+        }
+    }
+
+    protected void onLinkDueMsg(LinkDueMsg msg) {
+        Link link = this.links.get(msg.receiver);
+        if (link == null)
+            return;
+        link.timerSet = false;
+        long now = nowMicros();
+        while (!link.deadlines.isEmpty() &&
+                link.deadlines.peek() <= now) {
+            link.deadlines.poll();
+            msg.receiver.tell(link.messages.poll(), this.getSelf());
+        }
+        if (link.deadlines.isEmpty()) {
+            this.links.remove(msg.receiver);
+            return;
+        }
+        link.timerSet = true;
+        link.timer = schedule(msg, link.deadlines.peek() - now,
+                this.getSelf());
+    }
+
+    /*
+     * A view change supersedes the one in progress: the flushes
+     * queued for older views would be ignored by their receivers,
+     * and the members left out of the view need none of the
+     * messages and flushes still queued for them.
+     */
+    private void dropSuperseded(View next) {
+        Iterator<Map.Entry<ActorRef, Link>> links =
+                this.links.entrySet().iterator();
+        while (links.hasNext()) {
+            Map.Entry<ActorRef, Link> entry = links.next();
+            boolean member = next.contains(entry.getKey());
+            Link link = entry.getValue();
+            link.removeIf(message -> message instanceof FlushMsg &&
+                    (!member || ((FlushMsg) message).viewID < next.id) ||
+                    message instanceof Message && !member);
+            if (link.messages.isEmpty()) {
+                if (link.timer != null)
+                    link.timer.cancel();
+                links.remove();
+            }
+        }
+    }
+
+    protected void sendInternalMessage(Object message, long time) {
+        if (message == null)
+            return;
+        schedule(message, time, this.getSelf());
     }
 
     /**
@@ -121,154 +522,211 @@ public abstract class BaseParticipant extends AbstractActor {
      */
     protected void sendTimeoutMessage(Object message) {
         sendInternalMessage(message,
-                MAX_TIMEOUT);
+                TimeUnit.SECONDS.toMicros(MAX_TIMEOUT));
     }
 
-    protected void sendTimeoutMessageAfter(Object message, int after) {
+    protected void sendTimeoutMessageAfter(Object message, long after) {
         sendInternalMessage(message,
-                after + MAX_TIMEOUT);
+                after + TimeUnit.SECONDS.toMicros(MAX_TIMEOUT));
     }
 
     /**
-     * Send a message after a fixed amount of time.
+     * Send a message after a fixed amount of time
+     * (in microseconds).
      *
      * @param message
      * @param after
      * @param receiver
      */
-    protected void sendMessageAfter(Object message, int after, ActorRef receiver) {
+    protected void sendMessageAfter(Object message, long after, ActorRef receiver) {
         scheduleMessage(message, after, receiver);
     }
 
     /**
      * Send a multicast simulating delays.
-     * Each message is sent with 1 second interleaving
-     * between each other.
+     * The delay of each copy is given by the delay model.
      * 
      * @param message
-     * @param baseTime time after messages start to be sent
+     * @param baseTime time (in microseconds) after messages
+     * start to be sent
      * @return the estimated time after all messages will be
      * sent.
      */
-    protected int delayedMulticast(Object message,
+    protected long delayedMulticast(Object message,
             Set<ActorRef> receivers,
-            int baseTime) {
-        int time = 0;
+            long baseTime) {
+        long time = baseTime;
+        long delay;
+        int index = 0;
         for (ActorRef receiver : receivers) {
-            sendMessageAfter(message, baseTime + time, receiver);
-            time += 1;
+            delay = baseTime + this.delayModel.delay(this.getSelf(),
+                    receiver,
+                    index);
+            sendMessageAfter(message, delay, receiver);
+            if (delay > time)
+                time = delay;
+            index += 1;
         }
         return time;
     }
 
-    protected int delayedMulticast(Object message,
+    protected long delayedMulticast(Object message,
             Set<ActorRef> receivers) {
         return this.delayedMulticast(message, receivers, 0);
     }
 
     /**
-     * Return the set of actors associated to the
-     * flush messages received.
-     * 
-     * @param currentView
-     * @return
+     * Send a multicast simulating delays, without waiting
+     * for messages previously scheduled on the same links.
+     *
+     * Used for heartbeats: they don't need to be ordered
+     * with respect to other messages, and they shouldn't
+     * be held back by the fan-outs of a view change, or
+     * their inter-arrival times would say nothing about
+     * the liveness of the receiver. For the same reason
+     * every copy is delayed as the first one of a fan-out:
+     * the position of a receiver in the set changes with
+     * the view.
+     *
+     * @param message
+     * @param receivers
      */
-    protected Set<ActorRef> getFlushSenders(int currentView) {
-        Set<ActorRef> senders = new HashSet<>();
-        Iterator<FlushMsg> flushMsgIterator =
-                this.flushesReceived.iterator();
-        FlushMsg flushMsg;
-        while (flushMsgIterator.hasNext()) {
-            flushMsg = flushMsgIterator.next();
-            if (flushMsg.viewID == currentView)
-                senders.add(flushMsg.sender);
+    protected void unorderedMulticast(Object message,
+            Set<ActorRef> receivers) {
+        for (ActorRef receiver : receivers) {
+            schedule(message,
+                    this.delayModel.delay(this.getSelf(),
+                            receiver,
+                            0),
+                    receiver);
         }
-        return senders;
     }
     
+    /**
+     * Record a protocol message from the sender: it proves the
+     * sender alive, as a heartbeat would.
+     */
+    protected void heard() {
+        this.liveness.heard(this.getSender(), nowMillis());
+    }
+
     protected Message getMessage(Message other) {
-        Iterator<Message> msgIter = this.messagesBuffer.iterator();
-        Message tmp;
-        while (msgIter.hasNext()) {
-            tmp = msgIter.next();
-            if (tmp.equals(other))
-                return tmp;
-        }
-        return null;
+        return this.messagesBuffer.get(other.senderID, other.messageID);
     }
 
     protected void onStopMulticast(StopMulticastMsg stopMsg) {
+        this.heard();
         this.canSend = false;
-        System.out
-        .printf("%d P-%d P-%d INFO stopped_multicasting\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id);
+        this.log.log(LogEvent.STOPPED_MULTICASTING, this.id, this.id);
+    }
+
+    /**
+     * Get the view announced by a view change. If it cannot be
+     * built from the last view known by this node, a snapshot is
+     * asked to the group manager (the sender).
+     *
+     * @param viewChange
+     * @return the view announced, null if a snapshot has been
+     *         requested.
+     */
+    protected View announcedView(ViewChangeMsg viewChange) {
+        View announced = viewChange.apply(this.tempView);
+        if (announced == null)
+            this.getSender().tell(
+                    new ViewSnapshotRequestMsg(viewChange.id),
+                    this.getSelf());
+        return announced;
     }
 
     protected void onViewChangeMsg(ViewChangeMsg viewChange) {
+        this.heard();
         // do not install an old view
         if (viewChange.id < this.tempView.id)
             return;
+        // the view change has already been started
+        if (viewChange.id == this.flushesReceived.viewId())
+            return;
+        View announced = this.announcedView(viewChange);
+        if (announced == null)
+            return;
 
-        System.out.printf("%d P-%d P-%d INFO started_view_change V%d\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
+        this.log.log(LogEvent.STARTED_VIEW_CHANGE, this.id, this.id,
                 viewChange.id);
-        this.tempView = new View(viewChange.id,
-                viewChange.members,
-                viewChange.membersIds);
-        this.removeOldFlushes(this.tempView.id);
-
-        int waitTime = 0;
-        for (Message message : messagesBuffer) {
-            // mark the message as stable
-            message = new Message(message, true);
-            waitTime = this.delayedMulticast(message, this.tempView.members);
+        // the flush of the previous view change is still running
+        if (this.flushesReceived.viewId() > this.view.id) {
+            this.log.log(LogEvent.VIEW_CHANGE_SUPERSEDED, this.id, this.id,
+                    this.flushesReceived.viewId(), announced.id);
+            this.dropSuperseded(announced);
+        } else {
+            this.viewChangeStart = System.nanoTime();
         }
+        this.tempView = announced;
+        this.beginFlushes(this.tempView);
+
+        long waitTime = 0;
+        for (Message message : messagesBuffer)
+            waitTime = Math.max(waitTime, this.resend(message));
         // FLUSH messages: send them after having sent
         // all ViewChange messages. This is guaranteed
-        // by sending after waitTime (+1 to be sure)
+        // by sending after waitTime (and by FIFO links)
         this.delayedMulticast(new FlushMsg(this.id,
                     this.tempView.id,
                     this.getSelf()),
                 this.tempView.members,
-                waitTime + 1);
+                waitTime);
+    }
+
+    /*
+     * Send the stable copy of an unstable message to the members of
+     * the temporary view not having it yet.
+     *
+     * @return the estimated time after the copies will be sent
+     */
+    private long resend(Message message) {
+        Set<ActorRef> receivers = this.resent.get(message);
+        if (receivers == null) {
+            receivers = new HashSet<>(this.tempView.members);
+            this.resent.put(message, receivers);
+        } else {
+            Set<ActorRef> missing = new HashSet<>();
+            for (ActorRef member : this.tempView.members) {
+                if (receivers.add(member))
+                    missing.add(member);
+            }
+            receivers = missing;
+        }
+        // mark the message as stable
+        return this.delayedMulticast(new Message(message, true),
+                receivers);
     }
 
     protected void onFlushMsg(FlushMsg flushMsg) {
+        this.heard();
         /*
          * if the flush is for a previous view-change then just ignore
          * it.
          */
         if (flushMsg.viewID < this.tempView.id)
             return;
-        this.flushesReceived.add(flushMsg);
-        System.out.printf("%d P-%d P-%d received_flush V%d\n",
-                System.currentTimeMillis(),
-                this.id,
-                flushMsg.senderID,
+        boolean counted = this.flushesReceived.add(flushMsg.viewID,
+                flushMsg.sender);
+        this.metrics.flushReceived();
+        this.log.log(LogEvent.RECEIVED_FLUSH, this.id, flushMsg.senderID,
                 flushMsg.viewID);
         // if this is true then every operational
         // node has received all the unstable messages
-        if (this.tempView.id == flushMsg.viewID &&
-                this.getFlushSenders(this.tempView.id)
-                        .containsAll(this.tempView.members)) {
-            this.view = new View(tempView);
-            System.out.printf("%d install view %d %s\n",
-                    this.id,
-                    this.view.id,
-                    this.view.logMembers());
-            System.out.printf("%d P-%d P-%d installed_view %s\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id,
-                    this.view.toString());
-            System.out.printf("%d P-%d P-%d INFO can_send\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+        if (counted &&
+                this.flushesReceived.isComplete(this.tempView.id)) {
+            this.view = this.tempView;
+            this.metrics.viewInstalled(
+                    System.nanoTime() - this.viewChangeStart);
+            if (this.log.isEnabled(Level.DEBUG))
+                this.log.log(LogEvent.INSTALLED_VIEW_MEMBERS,
+                        this.id, this.id,
+                        this.view.logMembers(), this.view.id);
+            this.log.log(LogEvent.INSTALLED_VIEW, this.id, this.id,
+                    this.view);
+            this.log.log(LogEvent.CAN_SEND, this.id, this.id);
             // deliver all mesages up to current view
             Iterator<Message> msgIter = messagesBuffer.iterator();
             Message message;
@@ -279,15 +737,300 @@ public abstract class BaseParticipant extends AbstractActor {
                     msgIter.remove();
                 }
             }
-            // resume multicasting
+            this.resent.clear();
+            // resume multicasting. Messages in flight have
+            // been made stable by the flush.
+            this.inFlight.clear();
+            this.announcedStable = this.multicastId - 1;
             this.canSend = true;
             this.scheduleMulticast();
+            this.sendPendingPayloads();
+            this.onViewInstalled();
+        }
+    }
+
+    /**
+     * Called once a view has been installed, i.e. all the flushes
+     * of the view change have been received.
+     */
+    protected void onViewInstalled() {
+        if (this.swim == null)
+            return;
+        this.swim.setMembers(this.view.members);
+        if (!this.probing) {
+            this.probing = true;
+            this.getSelf().tell(new ProbeTickMsg(), this.getSelf());
+        }
+    }
+
+    // --- SWIM failure detection ---
+
+    /**
+     * @return false if the node must not take part in the
+     *         failure detection at the moment
+     */
+    protected boolean canProbe() {
+        return true;
+    }
+
+    /**
+     * Called when this node starts suspecting a member, or refutes
+     * a suspicion about itself. The update is already gossiped.
+     */
+    protected void onSuspicion(SwimUpdate update) {
+    }
+
+    /**
+     * Called at each round, before probing the next member.
+     *
+     * @param now time (ms)
+     */
+    protected void onProbeRound(long now) {
+    }
+
+    /*
+     * A probe sent on behalf of another node: the node asking
+     * and the sequence number of its own probe.
+     */
+    private static class Relay {
+        final ActorRef requester;
+        final int seq;
+
+        Relay(ActorRef requester, int seq) {
+            this.requester = requester;
+            this.seq = seq;
+        }
+    }
+
+    private void sendGossip(GossipMsg message, ActorRef receiver) {
+        this.unorderedMulticast(message, Collections.singleton(receiver));
+    }
+
+    private List<SwimUpdate> piggyback() {
+        return this.swim.piggyback(this.detectorSettings.maxPiggyback);
+    }
+
+    private void applyUpdates(List<SwimUpdate> updates) {
+        long now = nowMillis();
+        for (SwimUpdate update : updates) {
+            SwimUpdate applied = this.swim.apply(update, now);
+            if (applied != null && applied.member.equals(this.getSelf())) {
+                this.log.log(LogEvent.REFUTED, this.id, this.id, applied);
+                this.onSuspicion(applied);
+            }
+        }
+    }
+
+    /*
+     * If the member probed in the previous round did not answer,
+     * directly or through other members, suspect it. Then probe
+     * the next member.
+     */
+    protected void onProbeTickMsg(ProbeTickMsg tick) {
+        this.sendInternalMessage(tick, TimeUnit.MILLISECONDS.toMicros(
+                this.detectorSettings.heartbeatInterval));
+        if (!this.canProbe()) {
+            this.probeTarget = null;
+            return;
+        }
+        long now = nowMillis();
+        if (this.probeTarget != null && !this.probeAcked) {
+            SwimUpdate suspicion = this.swim.suspect(this.probeTarget, now);
+            if (suspicion != null) {
+                this.log.log(LogEvent.SUSPECTED, this.id, this.id,
+                        suspicion);
+                this.onSuspicion(suspicion);
+            }
         }
+        this.onProbeRound(now);
+        this.probeTarget = this.swim.nextTarget();
+        if (this.probeTarget == null)
+            return;
+        this.probeSeq = this.nextSeq++;
+        this.probeAcked = false;
+        this.sendGossip(new PingMsg(this.probeSeq, this.piggyback()),
+                this.probeTarget);
+        this.sendInternalMessage(new ProbeTimeoutMsg(this.probeSeq),
+                TimeUnit.MILLISECONDS.toMicros(
+                        this.detectorSettings.probeTimeout));
+    }
+
+    /*
+     * The probed member did not answer in time, ask other members
+     * to probe it.
+     */
+    protected void onProbeTimeoutMsg(ProbeTimeoutMsg timeout) {
+        if (timeout.seq != this.probeSeq ||
+                this.probeTarget == null ||
+                this.probeAcked)
+            return;
+        for (ActorRef member : this.swim.randomMembers(
+                this.detectorSettings.indirectProbes,
+                this.probeTarget))
+            this.sendGossip(new PingReqMsg(this.probeSeq,
+                    this.probeTarget,
+                    this.piggyback()),
+                    member);
     }
 
+    protected void onPingMsg(PingMsg ping) {
+        if (this.swim == null)
+            return;
+        this.applyUpdates(ping.updates);
+        this.sendGossip(new AckMsg(ping.seq, this.piggyback()),
+                this.getSender());
+    }
+
+    protected void onPingReqMsg(PingReqMsg request) {
+        if (this.swim == null)
+            return;
+        this.applyUpdates(request.updates);
+        int seq = this.nextSeq++;
+        this.relayed.put(seq, new Relay(this.getSender(), request.seq));
+        this.sendGossip(new PingMsg(seq, this.piggyback()), request.target);
+    }
+
+    protected void onAckMsg(AckMsg ack) {
+        if (this.swim == null)
+            return;
+        this.applyUpdates(ack.updates);
+        if (ack.seq == this.probeSeq && this.probeTarget != null) {
+            this.probeAcked = true;
+            return;
+        }
+        // the answer to a probe sent on behalf of another node
+        Relay relay = this.relayed.remove(ack.seq);
+        if (relay != null)
+            this.sendGossip(new AckMsg(relay.seq, this.piggyback()),
+                    relay.requester);
+    }
+
+    protected void onSuspicionMsg(SuspicionMsg suspicion) {
+        if (this.swim == null)
+            return;
+        this.applyUpdates(suspicion.updates);
+    }
+
+    /**
+     * A multicast issued by the node itself, periodically in auto
+     * mode or when ordered to, carries no payload: it is delivered
+     * by the protocol but nothing is handed to the listener.
+     *
+     * Unlike application payloads it is not queued: if a view
+     * change is ongoing or the window is full it is skipped, the
+     * next one in auto mode follows anyway.
+     *
+     * @param message
+     */
     protected void onSendMulticastMsg(SendMulticastMsg message) {
         this.scheduleMulticast();
-        this.multicast();
+        if (this.canSend && this.inFlight.size() >= this.window) {
+            this.log.log(LogEvent.MULTICAST_SKIPPED, this.id, this.id,
+                    this.inFlight.size());
+            return;
+        }
+        this.multicast(Collections.emptyList());
+    }
+
+    /**
+     * Multicast a payload given by the application. If the node
+     * cannot send at the moment (a view change is ongoing or the
+     * window of messages in flight is full) the payload is kept
+     * and sent as soon as possible, in submission order.
+     *
+     * @param submit
+     */
+    protected void onSubmitMsg(SubmitMsg submit) {
+        if (this.pendingPayloads.isEmpty())
+            this.startBatch();
+        this.pendingPayloads.add(submit.payload);
+        this.pendingBytes += submit.payload.size();
+        this.sendPendingPayloads();
+    }
+
+    protected void onStableSentMsg(StableSentMsg stableSent) {
+        if (!this.inFlight.remove(stableSent.messageID))
+            return;
+        this.sendPendingPayloads();
+        if (this.piggybackStability && !this.announcePending) {
+            // no message may follow to carry the stability
+            this.announcePending = true;
+            this.sendInternalMessage(new AnnounceStableMsg(),
+                    this.stabilityInterval);
+        }
+    }
+
+    /**
+     * @return the id up to which all messages sent by this
+     *         node are stable.
+     */
+    protected int stableWatermark() {
+        int watermark = this.multicastId - 1;
+        for (Integer messageID : this.inFlight) {
+            if (messageID - 1 < watermark)
+                watermark = messageID - 1;
+        }
+        return watermark;
+    }
+
+    protected void onAnnounceStableMsg(AnnounceStableMsg announce) {
+        this.announcePending = false;
+        // during view changes the flush takes care of stability
+        if (!this.canSend)
+            return;
+        int watermark = this.stableWatermark();
+        if (watermark <= this.announcedStable)
+            return;
+        this.announcedStable = watermark;
+        this.delayedMulticast(new StableMsg(this.id,
+                this.view.id,
+                watermark),
+                this.view.members);
+    }
+
+    protected void onLingerExpiredMsg(LingerExpiredMsg lingerExpired) {
+        this.sendPendingPayloads();
+    }
+
+    private void startBatch() {
+        this.batchStart = nowMicros();
+        if (this.batchEntries > 1 && this.linger > 0)
+            this.sendInternalMessage(new LingerExpiredMsg(),
+                    this.linger);
+    }
+
+    /**
+     * Send pending payloads in batches, as long as the node
+     * can send and the window has room.
+     *
+     * A batch not yet full is held back until its oldest
+     * payload has waited for the linger time.
+     */
+    private void sendPendingPayloads() {
+        while (this.canSend &&
+                this.inFlight.size() < this.window &&
+                !this.pendingPayloads.isEmpty()) {
+            boolean full = this.pendingPayloads.size() >= this.batchEntries ||
+                    this.pendingBytes >= this.batchBytes;
+            if (!full && nowMicros() - this.batchStart < this.linger)
+                return;
+            List<ByteString> batch = new ArrayList<>();
+            long bytes = 0;
+            ByteString payload;
+            while (batch.size() < this.batchEntries &&
+                    !this.pendingPayloads.isEmpty()) {
+                payload = this.pendingPayloads.peek();
+                if (!batch.isEmpty() &&
+                        bytes + payload.size() > this.batchBytes)
+                    break;
+                batch.add(this.pendingPayloads.poll());
+                bytes += payload.size();
+            }
+            this.pendingBytes -= bytes;
+            this.multicast(batch);
+            if (!this.pendingPayloads.isEmpty())
+                this.startBatch();
+        }
     }
 
     /**
@@ -301,39 +1044,52 @@ public abstract class BaseParticipant extends AbstractActor {
         if (this.manualMode)
             return;
         sendInternalMessage(new SendMulticastMsg(),
-                MULTICAST_INTERLEAVING);
+                TimeUnit.SECONDS.toMicros(MULTICAST_INTERLEAVING));
     }
 
-    private void multicast() {
-        if (!this.canSend)
+    /**
+     * Send the unstable copies of a new message to every member,
+     * followed by the stable ones.
+     *
+     * Several multicasts can be in flight at the same time, up to
+     * the window size. Unstable messages are buffered by receivers
+     * and resent on view changes, so the flush covers all of them.
+     */
+    private void multicast(List<ByteString> payloads) {
+        if (!this.canSend || this.inFlight.size() >= this.window)
             return;
-        // this node cannot send message
-        // until this one is completed
-        this.canSend = false;
+        int stableUpTo = -1;
+        if (this.piggybackStability) {
+            stableUpTo = this.stableWatermark();
+            this.announcedStable = stableUpTo;
+        }
         Message message = new Message(
                 this.id,
                 this.multicastId,
                 this.view.id,
-                false);
-        System.out.printf("%d send multicast %d within %d\n",
-                this.id,
-                this.multicastId,
-                this.view.id);
-        System.out.printf("%d P-%d P-%d multicast_message %s\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                message.toString());
+                false,
+                payloads,
+                stableUpTo);
+        this.log.log(LogEvent.MULTICAST_MESSAGE, this.id, this.id,
+                message);
         this.multicastId += 1;
-        int waitTime;
+        this.metrics.multicastSent();
+        long waitTime;
         waitTime = this.delayedMulticast(message, this.view.members);
         // STABLE messages
-        message = new Message(message, true);
-        this.delayedMulticast(message, this.view.members, waitTime);
-        this.canSend = true;
+        if (!this.piggybackStability) {
+            message = new Message(message, true);
+            waitTime = this.delayedMulticast(message,
+                    this.view.members,
+                    waitTime);
+        }
+        this.inFlight.add(message.messageID);
+        this.sendInternalMessage(new StableSentMsg(message.messageID),
+                waitTime);
     }
 
     protected void onReceiveMessage(Message message) {
+        this.heard();
         /*
          * if the sender is not in the view, then do not accept the
          * message
@@ -357,6 +1113,27 @@ public abstract class BaseParticipant extends AbstractActor {
             this.messagesBuffer.remove(message);
         else
             this.messagesBuffer.add(message);
+        if (message.stableUpTo >= 0)
+            this.removeStableMessages(message.senderID,
+                    message.stableUpTo);
+    }
+
+    protected void onStableMsg(StableMsg stableMsg) {
+        this.heard();
+        if (!this.tempView.members.contains(this.getSender()))
+            return;
+        if (stableMsg.viewId != this.view.id)
+            return;
+        this.removeStableMessages(stableMsg.senderID,
+                stableMsg.stableUpTo);
+    }
+
+    /**
+     * Remove from the buffer the messages sent by the given
+     * process up to stableUpTo.
+     */
+    protected void removeStableMessages(int senderID, int stableUpTo) {
+        this.messagesBuffer.removeUpTo(senderID, stableUpTo);
     }
 
     /**
@@ -367,26 +1144,30 @@ public abstract class BaseParticipant extends AbstractActor {
      * @param message
      */
     protected void deliverMessage(Message message) {
-        if (this.processesDelivered
-                .get(message.senderID) == null ||
-                this.processesDelivered
-                .get(message.senderID) < message.messageID) {
-            System.out.printf("%d deliver multicast %d from %d within %d\n",
-                    this.id,
-                    message.messageID,
-                    message.senderID,
-                    message.viewId);
-            System.out.printf("%d P-%d P-%d delivered_message %s\n",
-                  System.currentTimeMillis(),
-                  this.id,
-                  message.senderID,
-                  message.toString());
+        if (this.processesDelivered.isNew(message.senderID,
+                message.messageID)) {
+            this.log.log(LogEvent.DELIVERED_MESSAGE, this.id,
+                    message.senderID, message);
+            this.metrics.delivered();
             // update the mapping
             this.updateProcessesDelivered(message.senderID,
                     message.messageID);
+            for (ByteString payload : message.payloads)
+                this.listener.onDeliver(message.senderID,
+                        message.messageID,
+                        payload);
+        } else {
+            this.metrics.duplicateSuppressed();
         }
     }
 
+    protected void onStatusRequestMsg(StatusRequestMsg request) {
+        this.getSender().tell(new StatusMsg(this.id,
+                this.view,
+                this.tempView),
+                this.getSelf());
+    }
+
     @Override
     public Receive createReceive() {
         return receiveBuilder()
@@ -395,6 +1176,18 @@ public abstract class BaseParticipant extends AbstractActor {
                 .match(FlushMsg.class, this::onFlushMsg)
                 .match(Message.class, this::onReceiveMessage)
                 .match(SendMulticastMsg.class, this::onSendMulticastMsg)
+                .match(SubmitMsg.class, this::onSubmitMsg)
+                .match(StableSentMsg.class, this::onStableSentMsg)
+                .match(LingerExpiredMsg.class, this::onLingerExpiredMsg)
+                .match(StableMsg.class, this::onStableMsg)
+                .match(AnnounceStableMsg.class, this::onAnnounceStableMsg)
+                .match(LinkDueMsg.class, this::onLinkDueMsg)
+                .match(ProbeTickMsg.class, this::onProbeTickMsg)
+                .match(ProbeTimeoutMsg.class, this::onProbeTimeoutMsg)
+                .match(PingMsg.class, this::onPingMsg)
+                .match(PingReqMsg.class, this::onPingReqMsg)
+                .match(AckMsg.class, this::onAckMsg)
+                .match(StatusRequestMsg.class, this::onStatusRequestMsg)
                 .build();
     }
 }
@@ -0,0 +1,24 @@
+package reliable_multicast;
+
+import akka.util.ByteString;
+
+/**
+ * Callback through which an application embedding a node receives
+ * the payloads delivered by the node.
+ *
+ * Payloads are given in delivery order. The callback is executed
+ * by the actor of the node, so it should return quickly. A listener
+ * shared among nodes must be thread safe.
+ *
+ * Only payloads submitted by the application (SubmitMsg) are given.
+ * Multicasts the nodes issue by themselves, in auto mode or when
+ * ordered to (SendMulticastMsg, scenario events), carry no payload
+ * and are never reported, so a listener can be combined with auto
+ * mode.
+ */
+public interface DeliveryListener {
+
+    DeliveryListener NONE = (senderId, messageId, payload) -> {};
+
+    void onDeliver(int senderId, int messageId, ByteString payload);
+}
@@ -2,20 +2,24 @@ package reliable_multicast;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import akka.actor.ActorRef;
+import reliable_multicast.logging.LogEvent;
 import reliable_multicast.messages.Message;
 import reliable_multicast.messages.ReviveMsg;
+import reliable_multicast.messages.ViewInstalledMsg;
 import reliable_multicast.messages.events_messages.*;
 import reliable_multicast.messages.events_messages.MulticastCrashMsg.MutlicastCrashType;
 import reliable_multicast.messages.events_messages.ReceivingCrashMsg.ReceivingCrashType;
 import reliable_multicast.messages.step_message.StepMessage;
+import reliable_multicast.utils.DeliveryVector;
 import reliable_multicast.utils.EventsList;
-import reliable_multicast.utils.IdRefMap;
+import reliable_multicast.utils.MembershipRegistry;
 import reliable_multicast.utils.StepProcessMap;
 
 public abstract class EventsController extends BaseParticipant {
@@ -34,8 +38,8 @@ public abstract class EventsController extends BaseParticipant {
 
     private int step; // the step we have reached
 
-    protected IdRefMap aliveProcesses;
-    protected IdRefMap crashedProcesses;
+    protected MembershipRegistry aliveProcesses;
+    protected MembershipRegistry crashedProcesses;
 
     private StepProcessMap sendOrder;
     private StepProcessMap risenOrder;
@@ -43,37 +47,70 @@ public abstract class EventsController extends BaseParticipant {
 
     private EventsList events;
 
+    /*
+     * Latest view installed by each participant, as acknowledged
+     * with a ViewInstalledMsg.
+     *
+     * A step passing all the checks is run only once every member
+     * of the current view has installed it: until then members
+     * may not be able to send the multicasts ordered by the step.
+     * The step waiting (0 if none) and the view it waits for are
+     * kept here. If another view change starts meanwhile the step
+     * is dropped, it will be tried again at the next tick.
+     */
+    private Map<ActorRef, Integer> installedViews;
+    private int pendingStep;
+    private int pendingViewId;
+
     public EventsController(
             boolean manualMode,
+            DeliveryListener listener,
             Map<String, Map<Event, Set<String>>> events,
             Map<Integer, Set<String>> sendOrder,
             Map<Integer, Set<String>> risenOrder,
             Map<Integer, Set<String>> views) {
-        this(manualMode);
+        this(manualMode, listener);
         this.sendOrder.fromMap(sendOrder);
         this.risenOrder.fromMap(risenOrder);
         this.views.fromMap(views);
         Set<Integer> processes = this.events.fromMap(events);
         for (Integer process : processes) {
-            this.processesDelivered.put(process, -1);
+            this.processesDelivered.set(process, -1);
         }
     }
 
-    public EventsController(boolean manualMode) {
-        super(manualMode);
+    public EventsController(
+            boolean manualMode,
+            Map<String, Map<Event, Set<String>>> events,
+            Map<Integer, Set<String>> sendOrder,
+            Map<Integer, Set<String>> risenOrder,
+            Map<Integer, Set<String>> views) {
+        this(manualMode, DeliveryListener.NONE, events,
+                sendOrder, risenOrder, views);
+    }
+
+    public EventsController(boolean manualMode,
+            DeliveryListener listener) {
+        super(manualMode, listener);
         this.step = 0;
         this.events = new EventsList();
-        this.aliveProcesses = new IdRefMap();
-        this.crashedProcesses = new IdRefMap();
+        this.aliveProcesses = new MembershipRegistry();
+        this.crashedProcesses = new MembershipRegistry();
         this.sendOrder = new StepProcessMap();
         this.risenOrder = new StepProcessMap();
         this.views = new StepProcessMap();
+        this.installedViews = new HashMap<>();
+        this.pendingStep = 0;
 
         // start counting steps
         if (this.manualMode)
             sendTimeoutMessage(new SendStepMsg());
     }
 
+    public EventsController(boolean manualMode) {
+        this(manualMode, DeliveryListener.NONE);
+    }
+
     public EventsController() {
         this(false);
     }
@@ -113,6 +150,54 @@ public abstract class EventsController extends BaseParticipant {
         // id).
         this.crashedProcesses.addIdRefAssoc(id, process);
         this.aliveProcesses.removeIdRefEntry(id);
+        this.installedViews.remove(process);
+    }
+
+    protected void onViewInstalledMsg(ViewInstalledMsg installed) {
+        this.installedViews.merge(this.getSender(), installed.viewId,
+                Math::max);
+        this.runPendingStep();
+    }
+
+    @Override
+    protected void onViewInstalled() {
+        super.onViewInstalled();
+        this.runPendingStep();
+    }
+
+    /**
+     * @return true if every member of the current view has
+     *         installed it
+     */
+    private boolean viewInstalledByAll() {
+        for (ActorRef member : this.view.members) {
+            if (member.equals(this.getSelf()))
+                continue;
+            Integer installed = this.installedViews.get(member);
+            if (installed == null || installed < this.view.id)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run the step waiting for the view to be installed, if it
+     * has been installed by all of its members.
+     */
+    private void runPendingStep() {
+        if (this.pendingStep == 0)
+            return;
+        if (!this.view.equals(this.tempView) ||
+                this.view.id != this.pendingViewId) {
+            // a view change is ongoing, try again at the next tick
+            this.pendingStep = 0;
+            return;
+        }
+        if (!this.viewInstalledByAll())
+            return;
+        int step = this.pendingStep;
+        this.pendingStep = 0;
+        this.runStep(step);
     }
 
     /**
@@ -133,12 +218,10 @@ public abstract class EventsController extends BaseParticipant {
         if (!this.manualMode) {
             return;
         }
+        // a step still waiting is checked again from scratch
+        this.pendingStep = 0;
         int tmpStep = this.step + 1;
-        System.out.printf("%d P-%d P-%s INFO step-%d\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                tmpStep);
+        this.log.log(LogEvent.STEP, this.id, this.id, tmpStep);
         //DEBUGGING PURPOSE ONLY
         for(ActorRef member : tempView.members)
             member.tell(new StepMessage(tmpStep), this.getSelf());
@@ -148,11 +231,7 @@ public abstract class EventsController extends BaseParticipant {
          * senders are in the current view (as expected).
          */
         if (!this.view.equals(this.tempView)) {
-            System.out
-            .printf("%d P-%d P-%s INFO view_unstable\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+            this.log.log(LogEvent.VIEW_UNSTABLE, this.id, this.id);
             return;
         }
 
@@ -183,13 +262,8 @@ public abstract class EventsController extends BaseParticipant {
                 participants.add(this.crashedProcesses
                         .getActorById(processId));
             } else {
-                System.out
-                        .printf("%d P-%d P-%s INFO missing processes " +
-                                "in the view for step-%d\n",
-                                System.currentTimeMillis(),
-                                this.id,
-                                this.id,
-                                tmpStep);
+                this.log.log(LogEvent.MISSING_VIEW_PROCESSES,
+                        this.id, this.id, tmpStep);
                 return;
             }
         }
@@ -203,11 +277,7 @@ public abstract class EventsController extends BaseParticipant {
         currentParticipants.addAll(this.crashedProcesses
                 .getProcessesActors());
         if (!currentParticipants.containsAll(participants)) {
-            System.out.printf("%d P-%d P-%s WARNING missing" +
-                    " processes for step-%d\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id,
+            this.log.log(LogEvent.MISSING_PROCESSES, this.id, this.id,
                     tmpStep);
             return;
         }
@@ -228,17 +298,25 @@ public abstract class EventsController extends BaseParticipant {
          * then they are not able to send multicasts, so orders stated
          * by the controller won't be performed.
          *
-         * So, let's wait 1 second in order to let other nodes install
-         * the view and **be able** to send new messages. In a real
-         * system this waiting time should approximate the worst among
-         * network delays.
+         * So, the step is run once every member has acknowledged the
+         * installation of the view. Meanwhile the controller keeps
+         * handling messages.
          */
-        // TODO: try to remove this
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        this.pendingStep = tmpStep;
+        this.pendingViewId = this.view.id;
+        if (!this.viewInstalledByAll())
+            this.log.log(LogEvent.WAITING_VIEW_INSTALLED, this.id, this.id,
+                    tmpStep);
+        this.runPendingStep();
+    }
+
+    /**
+     * Send the orders of a step whose checks have been passed, the
+     * view being installed by all of its members.
+     */
+    private void runStep(int tmpStep) {
+        Set<Integer> viewParticipantsIds =
+                this.views.getProcessesInStep(tmpStep);
         // collect the senders set and the set
         // of processes to revive
         Set<Integer> sendersIds =
@@ -254,11 +332,7 @@ public abstract class EventsController extends BaseParticipant {
                         .getProcessesIds()
                         .containsAll(risenIds);
         if (missingRisen || missingSenders) {
-            System.out.printf("%d P-%d P-%s WARNING wrong" +
-                    " processes configuration for step-%d\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id,
+            this.log.log(LogEvent.WRONG_CONFIGURATION, this.id, this.id,
                     tmpStep);
             return;
         }
@@ -290,15 +364,8 @@ public abstract class EventsController extends BaseParticipant {
                 // a multicast. The configuration file is therefore
                 // wrong.
                 if (tmpSender == null) {
-                    System.out
-                    .printf("%d P-%d P-%s ERROR process p%d" +
-                            " cannot send in step-%d. It's crashed." +
-                            " Check the conf. file.\n",
-                            System.currentTimeMillis(),
-                            this.id,
-                            this.id,
-                            senderId,
-                            tmpStep);
+                    this.log.log(LogEvent.CRASHED_SENDER, this.id, this.id,
+                            senderId, tmpStep);
                     return;
                 }
                 nextEventLabel = this.getProcessNextLabel(
@@ -316,16 +383,8 @@ public abstract class EventsController extends BaseParticipant {
                             .contains(senderId))
                         senders.add(tmpSender);
                     else {
-                        System.out
-                        .printf("%d P-%d P-%s WARNING process p%d" +
-                                " had two concurrent sending events in step-%d." +
-                                " The normal multicast has been ignored." +
-                                " Check the conf. file.\n",
-                                System.currentTimeMillis(),
-                                this.id,
-                                this.id,
-                                senderId,
-                                tmpStep);
+                        this.log.log(LogEvent.CONCURRENT_SENDS,
+                                this.id, this.id, senderId, tmpStep);
                     }
                 }
             }
@@ -339,15 +398,8 @@ public abstract class EventsController extends BaseParticipant {
                 crashedProcess = this.crashedProcesses
                         .getActorById(risenId);
                 if (crashedProcess == null) {
-                    System.out
-                    .printf("%d P-%d P-%s ERROR process p%d" +
-                            " cannot revive in step-%d." +
-                            " It's still alive. Check the conf. file.\n",
-                            System.currentTimeMillis(),
-                            this.id,
-                            this.id,
-                            risenId,
-                            tmpStep);
+                    this.log.log(LogEvent.ALIVE_REVIVED, this.id, this.id,
+                            risenId, tmpStep);
                     return;
                 }
                 risenList.add(crashedProcess);
@@ -392,13 +444,7 @@ public abstract class EventsController extends BaseParticipant {
             tmpReceiver = this.aliveProcesses
                     .getActorById(receiverId);
             if (tmpReceiver == null) {
-                System.out
-                .printf("%d P-%d P-%s ERROR process p%d" +
-                        " cannot crash." +
-                        " It's not alive. Check the conf. file.\n",
-                        System.currentTimeMillis(),
-                        this.id,
-                        this.id,
+                this.log.log(LogEvent.CRASHED_RECEIVER, this.id, this.id,
                         receiverId);
                 return;
             }
@@ -432,19 +478,16 @@ public abstract class EventsController extends BaseParticipant {
     }
 
     public String getProcessLabel(Integer processId) {
-        Integer messageId = this.processesDelivered.get(processId);
-        if (messageId == null)
+        int messageId = this.processesDelivered.get(processId);
+        if (messageId == DeliveryVector.NONE)
             return null;
-        return "p" + processId.toString() +
-                "m" + messageId.toString();
+        return "p" + processId + "m" + messageId;
     }
 
     public String getProcessNextLabel(Integer processId) {
-        Integer messageId = this.processesDelivered.get(processId);
-        if (messageId == null)
+        int messageId = this.processesDelivered.get(processId);
+        if (messageId == DeliveryVector.NONE)
             return null;
-        messageId += 1;
-        return "p" + processId.toString() +
-                "m" + messageId.toString();
+        return "p" + processId + "m" + (messageId + 1);
     }
 }
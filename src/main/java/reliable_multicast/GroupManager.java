@@ -2,66 +2,104 @@ package reliable_multicast;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import reliable_multicast.logging.LogEvent;
+import reliable_multicast.messages.AckMsg;
 import reliable_multicast.messages.AliveMsg;
 import reliable_multicast.messages.FlushMsg;
 import reliable_multicast.messages.GmAliveMsg;
 import reliable_multicast.messages.JoinRequestMsg;
 import reliable_multicast.messages.Message;
+import reliable_multicast.messages.PingMsg;
+import reliable_multicast.messages.PingReqMsg;
+import reliable_multicast.messages.StableMsg;
 import reliable_multicast.messages.StopMulticastMsg;
+import reliable_multicast.messages.SubmitMsg;
+import reliable_multicast.messages.SuspicionMsg;
 import reliable_multicast.messages.ViewChangeMsg;
+import reliable_multicast.messages.ViewInstalledMsg;
+import reliable_multicast.messages.ViewSnapshotRequestMsg;
+import reliable_multicast.metrics.GroupManagerMetrics;
+import reliable_multicast.metrics.ParticipantMetrics;
 
 public class GroupManager extends EventsController {
 
     public static class CheckViewMsg implements Serializable {};
 
+    /*
+     * The coalescing window of a batch of changes is over.
+     */
+    public static class WindowExpiredMsg implements Serializable {
+        public final int batch;
+
+        public WindowExpiredMsg(int batch) {
+            this.batch = batch;
+        }
+    };
+
     // id generator used for ID assignment to
     // nodes joining the system
     private int idPool;
 
     /*
-     * alivesReceives will contain all actors in the system. On a
-     * regular basis each actor will be asked to answer to an heartbeat
-     * message (AliveMsg). If it does, the actor is removed from the
-     * set.
-     *
-     * alivesReceived will therefore contain actors that haven't sent
-     * back an answer to the hearbeat within a given time slot, so they
-     * are seen as crashed nodes.
+     * Joins and crashes are not applied one by one: they are
+     * collected for a short window (participant.view_change) and
+     * admitted together in a single view change. When K nodes start
+     * together the group goes through a few view changes instead of
+     * K, each one costing a stop round, a view change round and an
+     * N-way flush.
      */
-    private Set<ActorRef> alivesReceived;
+    private Set<ActorRef> pendingJoins;
+    private Set<ActorRef> pendingCrashes;
+    // the batch being collected, expired windows of
+    // previous batches are ignored
+    private int batch;
+    private boolean windowOpen;
+    // window (in microseconds)
+    private long window;
+    private int maxBatch;
 
-    private void initGroupManager(int id) {
+    private void initGroupManager(int id, int groupId) {
         this.id = id;
+        this.groupId = groupId;
         this.aliveProcesses
                 .addIdRefAssoc(this.id, this.getSelf());
         this.idPool = this.id + 1;
-        this.alivesReceived = new HashSet<>();
+        com.typesafe.config.Config systemConfig = this.getContext()
+                .getSystem()
+                .settings()
+                .config();
+        this.pendingJoins = new LinkedHashSet<>();
+        this.pendingCrashes = new HashSet<>();
+        this.batch = 0;
+        this.windowOpen = false;
+        this.window = systemConfig.getDuration(
+                "participant.view_change.window", TimeUnit.MICROSECONDS);
+        this.maxBatch = Math.max(
+                systemConfig.getInt("participant.view_change.max_batch"), 1);
 
         // The Group Manager is the first
         // element of the view
         HashSet<ActorRef> initialView = new HashSet<ActorRef>();
         initialView.add(this.getSelf());
-        this.view = new View(0, initialView, new HashSet<>(this.id));
-        this.tempView = new View(view);
-        System.out.printf("%d P-%d P-%d INFO Group_manager_initiated\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id);
-        System.out.printf("%d P-%d P-%d INFO View %s\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                this.view.toString());
+        this.view = new View(0, initialView,
+                Collections.singleton(this.id));
+        this.tempView = this.view;
+        this.log.log(LogEvent.GM_INITIATED, this.id, this.id);
+        this.log.log(LogEvent.INITIAL_VIEW, this.id, this.id, this.view);
         this.canSend = true;
         // start checking the view
-        this.getSelf().tell(new CheckViewMsg(), this.getSelf());
+        if (this.swim == null)
+            this.getSelf().tell(new CheckViewMsg(), this.getSelf());
     }
 
     // --------- CONSTRUCTORS ------------------
@@ -74,6 +112,31 @@ public class GroupManager extends EventsController {
      * @param events
      * @param steps
      */
+    public GroupManager(
+            int id,
+            int groupId,
+            boolean manualMode,
+            DeliveryListener listener,
+            Map<String, Map<Event, Set<String>>> events,
+            Map<Integer, Set<String>> sendOrder,
+            Map<Integer, Set<String>> risenOrder,
+            Map<Integer, Set<String>> views) {
+        super(manualMode, listener, events, sendOrder, risenOrder, views);
+        this.initGroupManager(id, groupId);
+    }
+
+    public GroupManager(
+            int id,
+            boolean manualMode,
+            DeliveryListener listener,
+            Map<String, Map<Event, Set<String>>> events,
+            Map<Integer, Set<String>> sendOrder,
+            Map<Integer, Set<String>> risenOrder,
+            Map<Integer, Set<String>> views) {
+        this(id, 0, manualMode, listener, events, sendOrder,
+                risenOrder, views);
+    }
+
     public GroupManager(
             int id,
             boolean manualMode,
@@ -81,8 +144,8 @@ public class GroupManager extends EventsController {
             Map<Integer, Set<String>> sendOrder,
             Map<Integer, Set<String>> risenOrder,
             Map<Integer, Set<String>> views) {
-        super(manualMode, events, sendOrder, risenOrder, views);
-        this.initGroupManager(id);
+        this(id, manualMode, DeliveryListener.NONE, events,
+                sendOrder, risenOrder, views);
     }
 
     /**
@@ -92,7 +155,36 @@ public class GroupManager extends EventsController {
      */
     public GroupManager(int id) {
         super(false);
-        this.initGroupManager(id);
+        this.initGroupManager(id, 0);
+    }
+
+    /**
+     * Props of the manager of the given group, which admits only
+     * participants asking to join that group.
+     */
+    public static Props props(int id,
+            int groupId,
+            boolean manualMode,
+            DeliveryListener listener,
+            Map<String, Map<Event, Set<String>>> events,
+            Map<Integer, Set<String>> sendOrder,
+            Map<Integer, Set<String>> risenOrder,
+            Map<Integer, Set<String>> views) {
+        return Props.create(GroupManager.class,
+                () -> new GroupManager(id, groupId, manualMode, listener,
+                        events, sendOrder, risenOrder,
+                        views));
+    }
+
+    public static Props props(int id,
+            boolean manualMode,
+            DeliveryListener listener,
+            Map<String, Map<Event, Set<String>>> events,
+            Map<Integer, Set<String>> sendOrder,
+            Map<Integer, Set<String>> risenOrder,
+            Map<Integer, Set<String>> views) {
+        return props(id, 0, manualMode, listener, events, sendOrder,
+                risenOrder, views);
     }
 
     public static Props props(int id,
@@ -114,118 +206,237 @@ public class GroupManager extends EventsController {
 
     // ------------------------------------------
 
+    @Override
+    protected ParticipantMetrics newMetrics(ParticipantMetrics.Gauges gauges) {
+        return new GroupManagerMetrics(gauges,
+                () -> this.liveness.size());
+    }
+
     private void onJoinRequestMsg(JoinRequestMsg request) {
         // DEBUG:
-        System.out.printf("%d P-%s P-%s INFO join_request\n",
-                System.currentTimeMillis(),
+        this.log.log(LogEvent.JOIN_REQUEST,
                 this.getSelf().path().name(),
                 this.getSender().path().name());
+        // a participant configured for another group, e.g. given
+        // the path of the wrong manager
+        if (request.groupId != this.groupId) {
+            this.log.log(LogEvent.JOIN_REJECTED, this.id, this.id,
+                    request.groupId);
+            return;
+        }
+        // a node revived before its crash has been applied: the
+        // crash goes first
+        if (this.pendingCrashes.contains(this.getSender()))
+            this.applyChanges();
 
-        JoinRequestMsg response = new JoinRequestMsg(this.idPool);
+        JoinRequestMsg response = new JoinRequestMsg(this.idPool,
+                this.groupId);
         this.getSender().tell(response, this.getSelf());
         // add a new entry to the association map
         this.aliveProcesses.addIdRefAssoc(this.idPool,
                 this.getSender());
         this.idPool += 1;
+        // start monitoring the participant
+        if (this.swim == null)
+            this.liveness.monitor(this.getSender(), nowMillis());
+
+        // the view change must be issued after the node
+        // has received its new id.
+        this.pendingJoins.add(this.getSender());
+        this.changeAdded();
+    }
+
+    /*
+     * A join or a crash has been added to the batch.
+     */
+    private void changeAdded() {
+        int pending = this.pendingJoins.size() + this.pendingCrashes.size();
+        if (this.window <= 0 || pending >= this.maxBatch) {
+            this.applyChanges();
+            return;
+        }
+        // first changes of the batch
+        if (!this.windowOpen) {
+            this.windowOpen = true;
+            this.sendInternalMessage(new WindowExpiredMsg(this.batch),
+                    this.window);
+        }
+    }
+
+    private void onWindowExpiredMsg(WindowExpiredMsg msg) {
+        if (msg.batch == this.batch)
+            this.applyChanges();
+    }
 
+    /*
+     * Issue a single view change for the joins and the crashes
+     * collected so far.
+     */
+    private void applyChanges() {
+        if (this.pendingJoins.isEmpty() && this.pendingCrashes.isEmpty())
+            return;
+        this.batch += 1;
+        this.windowOpen = false;
+        if (this.pendingJoins.size() + this.pendingCrashes.size() > 1)
+            this.log.log(LogEvent.CHANGES_COALESCED, this.id, this.id,
+                    this.pendingJoins.size(), this.pendingCrashes.size());
         // define the new view
         // we start from the last temporary view since it's
         // the most up to date.
         Set<ActorRef> newView = new HashSet<>(this.tempView.members);
-        newView.add(this.getSender());
-        // the method must be issued after the node
-        // has received its new id.
+        newView.removeAll(this.pendingCrashes);
+        newView.addAll(this.pendingJoins);
+        this.pendingJoins.clear();
+        this.pendingCrashes.clear();
         onViewChange(newView);
     }
 
     private void onViewChange(Set<ActorRef> newMembers) {
         // tell every member in the view to stop
         // generating new multicasts
-        int waitTime;
+        long waitTime;
         waitTime = this.delayedMulticast(new StopMulticastMsg(), newMembers);
         // Due to FIFO guarantees given by the Akka
         // framework, we are (we should be) safe to
         // send the view change before acknowledging
         // everyone has stopped sending multicasts.
-        Set<Integer> membersIds = new HashSet<>();
-        Integer tmp;
-        for (ActorRef member : newMembers) {
-            tmp = this.aliveProcesses.getIdByActor(member);
-            if (tmp != null)
-                membersIds.add(tmp);
-        }
+        Set<Integer> membersIds =
+                this.aliveProcesses.getIdsByActors(newMembers);
+        View previous = this.tempView;
         this.tempView = new View(this.tempView.id + 1,
                 newMembers,
                 membersIds);
-        System.out.printf("%d P-%d P-%d INFO view_changed: %s\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                this.tempView.toString());
-        ViewChangeMsg viewMsg = new ViewChangeMsg(this.tempView);
-        this.delayedMulticast(viewMsg, newMembers, waitTime + 1);
+        this.log.log(LogEvent.VIEW_CHANGED, this.id, this.id,
+                this.tempView);
+        // members of the previous view just need the changes,
+        // joining nodes get the whole view
+        Set<ActorRef> joined = new HashSet<>();
+        Set<ActorRef> staying = new HashSet<>();
+        for (ActorRef member : newMembers) {
+            if (previous.contains(member))
+                staying.add(member);
+            else
+                joined.add(member);
+        }
+        this.delayedMulticast(new ViewChangeMsg(previous, this.tempView),
+                staying,
+                waitTime);
+        this.delayedMulticast(new ViewChangeMsg(this.tempView),
+                joined,
+                waitTime);
     }
 
     /*
-     * Send a message to each member in the view. If a response has not
-     * been received by some member (from a previous call to the method)
+     * A member could not apply the changes of a view change, send it
+     * the whole view.
+     */
+    private void onViewSnapshotRequestMsg(ViewSnapshotRequestMsg request) {
+        this.heard();
+        if (request.viewId > this.tempView.id ||
+                !this.tempView.contains(this.getSender()))
+            return;
+        this.delayedMulticast(new ViewChangeMsg(this.tempView),
+                Collections.singleton(this.getSender()));
+    }
+
+    /*
+     * Send an heartbeat to each member in the view not heard for a
+     * while. If some member is suspected by its failure detector,
      * then issue a view change.
+     *
+     * On a regular basis each participant is asked to answer to an
+     * heartbeat message (AliveMsg). Answers, and any other message
+     * of the participant, are fed to a phi accrual failure detector
+     * associated to the participant (see LivenessTracker): a
+     * participant sending multicasts or flushes is not asked.
+     *
+     * A participant is seen as crashed when the suspicion level of its
+     * detector goes beyond the configured threshold, that is when its
+     * silence is too long with respect to the inter-arrival times
+     * observed so far.
+     *
+     * In the swim mode no heartbeat is sent: members probe each other
+     * and report their suspicions. The group manager just removes the
+     * members whose suspicion is not refuted in time.
      */
     private void onCheckViewMsg(CheckViewMsg msg) {
          // DEBUG:
-         System.out.printf("%d P-%d P-%d INFO Checking survivors\n",
-                 System.currentTimeMillis(),
-                 this.id,
-                 this.id);
-        int waitTime = 0;
-        if (alivesReceived.size() > 0) {
-            /*
-             * here the view must be changed. A node crashed. New
-             * members are current members minus the ones from which the
-             * heartbeat has not been received.
-             */
-            Set<ActorRef> newView = new HashSet<>(
-                    this.tempView.members);
-            // ----------------------------------
-            // This is just to have additional info
-            // on crashed nodes. It's of no other use.
-            List<String> nodesCrashed = new ArrayList<>();
-            int pid = 0;
-            for (ActorRef actor : alivesReceived) {
-                newView.remove(actor);
-                pid = this.aliveProcesses.getIdByActor(actor);
-                nodesCrashed.add("p" + ((Integer) pid).toString());
-                onCrashedProcess(actor);
-            }
-            System.out.printf("%d P-%d P-%d INFO nodes: %s crashed.\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id,
-                    nodesCrashed.toString());
-            // ----------------------------------
-            alivesReceived.clear();
-            onViewChange(newView);
-        } else {
-            HashSet<ActorRef> participants =
-                    new HashSet<>(this.tempView.members);
-            participants.remove(this.getSelf()); // exclude the group
-                                                 // manager
-            AliveMsg aliveMsg = new AliveMsg();
-            for (ActorRef participant : participants) {
-                alivesReceived.add(participant);
+        this.log.log(LogEvent.CHECKING_SURVIVORS, this.id, this.id);
+        long now = nowMillis();
+        Set<ActorRef> suspected = new HashSet<>();
+        for (ActorRef member : this.tempView.members) {
+            if (!this.pendingCrashes.contains(member) &&
+                    !this.liveness.isAvailable(member, now))
+                suspected.add(member);
+        }
+        if (suspected.size() > 0)
+            this.removeCrashed(suspected);
+        HashSet<ActorRef> participants = new HashSet<>();
+        for (ActorRef member : this.tempView.members) {
+            // exclude the group manager and the crashed members
+            if (!member.equals(this.getSelf()) &&
+                    !this.pendingCrashes.contains(member) &&
+                    this.liveness.isSilent(member, now))
+                participants.add(member);
+        }
+        this.unorderedMulticast(new AliveMsg(), participants);
+        for (int i = 0; i < participants.size(); i++)
+            this.metrics.heartbeatSent();
+        this.sendInternalMessage(new CheckViewMsg(),
+                TimeUnit.MILLISECONDS.toMicros(
+                        this.detectorSettings.heartbeatInterval));
+    }
+
+    /*
+     * Remove crashed members from the view.
+     */
+    private void removeCrashed(Set<ActorRef> crashed) {
+        /*
+         * here the view must be changed. A node crashed. New
+         * members are current members minus the suspected ones.
+         */
+        // ----------------------------------
+        // This is just to have additional info
+        // on crashed nodes. It's of no other use.
+        List<String> nodesCrashed = new ArrayList<>();
+        int pid = 0;
+        for (ActorRef actor : crashed) {
+            this.pendingCrashes.add(actor);
+            this.liveness.forget(actor);
+            pid = this.aliveProcesses.getIdByActor(actor);
+            nodesCrashed.add("p" + ((Integer) pid).toString());
+            onCrashedProcess(actor);
+        }
+        this.log.log(LogEvent.NODES_CRASHED, this.id, this.id,
+                nodesCrashed.toString());
+        // ----------------------------------
+        this.changeAdded();
+    }
+
+    /*
+     * Swim mode: confirm the suspicions not refuted in time. Members
+     * already removed by a view change still in progress are skipped.
+     */
+    @Override
+    protected void onProbeRound(long now) {
+        Set<ActorRef> crashed = new HashSet<>();
+        for (ActorRef member : this.swim.expired(now,
+                this.detectorSettings.suspicionTimeout)) {
+            if (this.tempView.contains(member) &&
+                    !this.pendingCrashes.contains(member)) {
+                this.log.log(LogEvent.SUSPICION_CONFIRMED, this.id,
+                        this.id, member.path().name());
+                crashed.add(member);
             }
-            waitTime = this.delayedMulticast(aliveMsg, participants);
         }
-        // Wait to receive responses from all
-        // participants
-        sendTimeoutMessageAfter(new CheckViewMsg(), waitTime);
+        if (crashed.size() > 0)
+            this.removeCrashed(crashed);
     }
 
     private void onAliveMsg(AliveMsg msg) {
-        alivesReceived.remove(this.getSender());
+        this.liveness.heartbeat(this.getSender(), nowMillis());
         //DEBUG:
-        System.out.printf("%d P-%d P-%d received_alive_message\n",
-                System.currentTimeMillis(), this.id, this.id);
+        this.log.log(LogEvent.RECEIVED_ALIVE, this.id, this.id);
     }
 
     /**
@@ -236,11 +447,15 @@ public class GroupManager extends EventsController {
      * heartbeat request anymore, thus the participant can terminate
      * (if it is alive).
      *
+     * The request is itself an heartbeat of the participant.
+     *
      * @param msg
      */
     private void onGmAliveMsg(GmAliveMsg msg) {
+        this.liveness.heartbeat(this.getSender(), nowMillis());
         this.getSender().tell(new GmAliveMsg(),
                 this.getSelf());
+        this.metrics.heartbeatSent();
     }
 
     @Override
@@ -249,15 +464,32 @@ public class GroupManager extends EventsController {
                 .match(JoinRequestMsg.class, this::onJoinRequestMsg)
                 .match(StopMulticastMsg.class, this::onStopMulticast)
                 .match(ViewChangeMsg.class, this::onViewChangeMsg)
+                .match(ViewSnapshotRequestMsg.class,
+                        this::onViewSnapshotRequestMsg)
                 .match(FlushMsg.class, this::onFlushMsg)
                 .match(SendMulticastMsg.class, this::onSendMulticastMsg)
+                .match(SubmitMsg.class, this::onSubmitMsg)
+                .match(StableSentMsg.class, this::onStableSentMsg)
+                .match(LingerExpiredMsg.class, this::onLingerExpiredMsg)
+                .match(StableMsg.class, this::onStableMsg)
+                .match(AnnounceStableMsg.class, this::onAnnounceStableMsg)
                 .match(Message.class, this::onReceiveMessage)
                 .match(CheckViewMsg.class, this::onCheckViewMsg)
+                .match(WindowExpiredMsg.class, this::onWindowExpiredMsg)
                 .match(AliveMsg.class, this::onAliveMsg)
                 .match(GmAliveMsg.class, this::onGmAliveMsg)
+                .match(LinkDueMsg.class, this::onLinkDueMsg)
+                .match(ProbeTickMsg.class, this::onProbeTickMsg)
+                .match(ProbeTimeoutMsg.class, this::onProbeTimeoutMsg)
+                .match(PingMsg.class, this::onPingMsg)
+                .match(PingReqMsg.class, this::onPingReqMsg)
+                .match(AckMsg.class, this::onAckMsg)
+                .match(SuspicionMsg.class, this::onSuspicionMsg)
+                .match(StatusRequestMsg.class, this::onStatusRequestMsg)
                 // handle (receiving) the step message defined in
                 // the EventsController
                 .match(SendStepMsg.class, this::onSendStepMsg)
+                .match(ViewInstalledMsg.class, this::onViewInstalledMsg)
                 .build();
     }
 }
@@ -0,0 +1,457 @@
+package reliable_multicast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Address;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import akka.pattern.PatternsCS;
+import akka.util.ByteString;
+import reliable_multicast.BaseParticipant.SendMulticastMsg;
+import reliable_multicast.BaseParticipant.StatusMsg;
+import reliable_multicast.BaseParticipant.StatusRequestMsg;
+import reliable_multicast.messages.CrashMsg;
+import reliable_multicast.messages.ReviveMsg;
+import reliable_multicast.messages.SubmitMsg;
+import reliable_multicast.utils.Transport;
+import scala.compat.java8.FutureConverters;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Run a group manager plus N participants inside a single JVM.
+ *
+ * Nodes live in one ActorSystem which can be either purely local or
+ * remote-enabled on the loopback interface. In the latter case
+ * participants reach the group manager through its remote path and
+ * every message is serialized, as it would be on the wire.
+ *
+ * In DISTRIBUTED mode every node gets an ActorSystem of its own,
+ * bound to a port of the loopback interface, so messages among nodes
+ * actually go through the remoting transport.
+ *
+ * The cluster is returned once the first view containing all the
+ * nodes has been installed by everyone. Nodes can then be driven
+ * through their handles.
+ *
+ * Many groups can share a system made with
+ * {@link #system(Mode, Transport, Config)}, each one started as a
+ * cluster of its own with a distinct group id.
+ */
+public class LocalCluster {
+
+    public static final String SYSTEM_NAME = "multicast_system";
+    public static final String GROUP_MANAGER_NAME = "gm";
+    public static final String PARTICIPANT_NAME = "part";
+
+    public enum Mode {
+        LOCAL,
+        LOOPBACK,
+        DISTRIBUTED
+    }
+
+    /**
+     * A handle over a node of the cluster.
+     */
+    public class Node {
+        private final ActorRef ref;
+        // set when the node is crashed through its handle
+        private volatile boolean crashed;
+
+        private Node(ActorRef ref) {
+            this.ref = ref;
+            this.crashed = false;
+        }
+
+        public ActorRef ref() {
+            return ref;
+        }
+
+        /**
+         * Ask the node to issue a multicast.
+         */
+        public void send() {
+            ref.tell(new SendMulticastMsg(), ActorRef.noSender());
+        }
+
+        /**
+         * Ask the node to multicast the given payload.
+         */
+        public void submit(ByteString payload) {
+            ref.tell(new SubmitMsg(payload), ActorRef.noSender());
+        }
+
+        public void crash() {
+            crashed = true;
+            ref.tell(new CrashMsg(), ActorRef.noSender());
+        }
+
+        public void revive() {
+            crashed = false;
+            ref.tell(new ReviveMsg(), ActorRef.noSender());
+        }
+
+        public boolean isCrashed() {
+            return crashed;
+        }
+
+        public StatusMsg status() throws Exception {
+            return LocalCluster.this.status(ref);
+        }
+
+        /**
+         * @return the id assigned by the group manager, -1 if the node
+         *         has not joined yet (or it's crashed).
+         */
+        public int id() throws Exception {
+            return status().id;
+        }
+
+        public View view() throws Exception {
+            return status().view;
+        }
+
+        @Override
+        public String toString() {
+            return ref.path().name();
+        }
+    }
+
+    // time (ms) a node is given to answer a status request
+    private static final long ASK_TIMEOUT = 5000;
+
+    // systems hosting the nodes, the one of the group manager first
+    private final List<ActorSystem> systems;
+    // the system is shared with other groups, shutting the cluster
+    // down stops the nodes only
+    private final boolean shared;
+    private final int groupId;
+    private Node groupManager;
+    private List<Node> participants;
+
+    private LocalCluster(List<ActorSystem> systems, boolean shared,
+            int groupId) {
+        this.systems = systems;
+        this.shared = shared;
+        this.groupId = groupId;
+    }
+
+    private static Config systemConfig(Mode mode,
+            Transport transport,
+            Config config) {
+        String base;
+        Config address = ConfigFactory.empty();
+        if (mode == Mode.LOCAL) {
+            base = "akka.actor.provider = local\n";
+        } else {
+            base = "akka.actor.provider = remote\n";
+            // within a single system messages are not sent through
+            // the transport, serialize them anyway
+            if (mode == Mode.LOOPBACK)
+                base += "akka.actor.serialize-messages = on\n";
+            address = transport.config("127.0.0.1", 0);
+        }
+        base += "akka.actor.warn-about-java-serializer-usage = false\n" +
+                "akka.log-dead-letters = off\n" +
+                "akka.log-dead-letters-during-shutdown = off\n";
+        return config.withFallback(address)
+                .withFallback(ConfigFactory.parseString(base))
+                .withFallback(ConfigFactory.load());
+    }
+
+    /**
+     * Start a cluster and wait for the first view made of all the
+     * nodes to be installed.
+     *
+     * @param size number of participants (group manager excluded)
+     * @param mode
+     * @param transport used among nodes in LOOPBACK and DISTRIBUTED
+     *        modes
+     * @param manualMode if true nodes multicast only when asked to
+     * @param config overrides for the ActorSystem config
+     * @param listeners gives the listener of each node: 0 is the group
+     *        manager, i the i-th participant
+     * @param timeout max time (in seconds) to wait for the view
+     * @return
+     * @throws TimeoutException if the view has not been installed in
+     *         time. The system is shut down in this case.
+     */
+    public static LocalCluster start(int size,
+            Mode mode,
+            Transport transport,
+            boolean manualMode,
+            Config config,
+            IntFunction<DeliveryListener> listeners,
+            long timeout) throws Exception {
+        Config systemConfig = systemConfig(mode, transport, config);
+        List<ActorSystem> systems = new ArrayList<>();
+        systems.add(ActorSystem.create(SYSTEM_NAME, systemConfig));
+        LocalCluster cluster = new LocalCluster(systems, false, 0);
+        cluster.launch(mode, systemConfig, size, manualMode, listeners);
+        cluster.awaitFirstView(timeout);
+        return cluster;
+    }
+
+    /**
+     * Create a system able to host many groups, each one started
+     * with {@link #start(ActorSystem, int, int, boolean, IntFunction,
+     * long)}. The caller terminates it once done.
+     *
+     * @param mode LOCAL or LOOPBACK
+     * @param transport used in LOOPBACK mode
+     * @param config overrides for the ActorSystem config
+     */
+    public static ActorSystem system(Mode mode,
+            Transport transport,
+            Config config) {
+        if (mode == Mode.DISTRIBUTED)
+            throw new IllegalArgumentException(
+                    "groups can share a LOCAL or LOOPBACK system only");
+        return ActorSystem.create(SYSTEM_NAME,
+                systemConfig(mode, transport, config));
+    }
+
+    /**
+     * Start a group in a system shared with other groups, and wait
+     * for its first view made of all the nodes to be installed.
+     * Nodes are named after the group, which must be unique within
+     * the system. Shutting the cluster down stops its nodes only.
+     *
+     * @param system made with {@link #system(Mode, Transport, Config)}
+     * @param groupId
+     * @param size number of participants (group manager excluded)
+     * @param manualMode if true nodes multicast only when asked to
+     * @param listeners gives the listener of each node: 0 is the group
+     *        manager, i the i-th participant
+     * @param timeout max time (in seconds) to wait for the view
+     * @return
+     * @throws TimeoutException if the view has not been installed in
+     *         time. The nodes are stopped in this case.
+     */
+    public static LocalCluster start(ActorSystem system,
+            int groupId,
+            int size,
+            boolean manualMode,
+            IntFunction<DeliveryListener> listeners,
+            long timeout) throws Exception {
+        List<ActorSystem> systems = new ArrayList<>();
+        systems.add(system);
+        LocalCluster cluster = new LocalCluster(systems, true, groupId);
+        // nodes of the same system reach each other through their
+        // refs, serialized anyway if the system is LOOPBACK
+        cluster.launch(Mode.LOCAL, system.settings().config(), size,
+                manualMode, listeners);
+        cluster.awaitFirstView(timeout);
+        return cluster;
+    }
+
+    private void launch(Mode mode,
+            Config systemConfig,
+            int size,
+            boolean manualMode,
+            IntFunction<DeliveryListener> listeners) {
+        ActorRef gm = systems.get(0).actorOf(GroupManager.props(0,
+                groupId,
+                manualMode,
+                listeners.apply(0),
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>(),
+                new HashMap<>()),
+                BaseParticipant.actorName(GROUP_MANAGER_NAME, groupId));
+        this.groupManager = new Node(gm);
+
+        String gmPath = null;
+        if (mode != Mode.LOCAL) {
+            Address address = systems.get(0).provider()
+                    .getDefaultAddress();
+            gmPath = gm.path().toStringWithAddress(address);
+        }
+        ActorSystem system = systems.get(0);
+        Props props;
+        List<Node> participants = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            if (gmPath == null)
+                props = Participant.props(gm, groupId, manualMode,
+                        listeners.apply(i));
+            else
+                props = Participant.props(gmPath, groupId, manualMode,
+                        listeners.apply(i));
+            if (mode == Mode.DISTRIBUTED) {
+                system = ActorSystem.create(SYSTEM_NAME, systemConfig);
+                systems.add(system);
+            }
+            participants.add(new Node(system.actorOf(props,
+                    BaseParticipant.actorName(PARTICIPANT_NAME + i,
+                            groupId))));
+        }
+        this.participants = Collections.unmodifiableList(participants);
+    }
+
+    private void awaitFirstView(long timeout) throws Exception {
+        try {
+            this.awaitView(this.participants.size() + 1, timeout);
+        } catch (TimeoutException e) {
+            this.shutdown();
+            throw e;
+        }
+    }
+
+    public static LocalCluster start(int size,
+            Mode mode,
+            boolean manualMode,
+            Config config,
+            IntFunction<DeliveryListener> listeners,
+            long timeout) throws Exception {
+        return start(size, mode, Transport.CLASSIC, manualMode, config,
+                listeners, timeout);
+    }
+
+    public static LocalCluster start(int size,
+            Mode mode,
+            boolean manualMode,
+            Config config,
+            long timeout) throws Exception {
+        return start(size, mode, manualMode, config,
+                node -> DeliveryListener.NONE,
+                timeout);
+    }
+
+    public static LocalCluster start(int size, Mode mode,
+            boolean manualMode) throws Exception {
+        return start(size, mode, manualMode,
+                ConfigFactory.empty(),
+                60 + size * BaseParticipant.MAX_TIMEOUT);
+    }
+
+    public static LocalCluster start(int size) throws Exception {
+        return start(size, Mode.LOCAL, true);
+    }
+
+    /**
+     * @return the system of the group manager, the only one
+     *         unless the cluster is DISTRIBUTED.
+     */
+    public ActorSystem system() {
+        return systems.get(0);
+    }
+
+    public int groupId() {
+        return groupId;
+    }
+
+    public Node groupManager() {
+        return groupManager;
+    }
+
+    public List<Node> participants() {
+        return participants;
+    }
+
+    public Node participant(int index) {
+        return participants.get(index);
+    }
+
+    public int size() {
+        return participants.size();
+    }
+
+    private StatusMsg status(ActorRef node) throws Exception {
+        return (StatusMsg) PatternsCS.ask(node,
+                new StatusRequestMsg(),
+                ASK_TIMEOUT)
+                .toCompletableFuture()
+                .get(ASK_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wait until every node not crashed through its handle has
+     * installed the same view made of viewSize members.
+     *
+     * @param viewSize
+     * @param timeout in seconds
+     * @return the view installed
+     * @throws TimeoutException
+     */
+    public View awaitView(int viewSize, long timeout) throws Exception {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(groupManager);
+        for (Node participant : participants) {
+            if (!participant.isCrashed())
+                nodes.add(participant);
+        }
+        return awaitView(nodes, viewSize, timeout);
+    }
+
+    public View awaitView(Collection<Node> nodes,
+            int viewSize,
+            long timeout) throws Exception {
+        long deadline = System.nanoTime() +
+                TimeUnit.SECONDS.toNanos(timeout);
+        while (System.nanoTime() < deadline) {
+            View installed = null;
+            boolean stable = true;
+            for (Node node : nodes) {
+                StatusMsg status = node.status();
+                if (!status.view.equals(status.tempView) ||
+                        status.view.getMembers().size() != viewSize ||
+                        (installed != null &&
+                        !sameView(installed, status.view))) {
+                    stable = false;
+                    break;
+                }
+                installed = status.view;
+            }
+            if (stable && installed != null)
+                return installed;
+            Thread.sleep(100);
+        }
+        throw new TimeoutException("view of size " + viewSize +
+                " not installed within " + timeout + "s");
+    }
+
+    private static CompletableFuture<Boolean> stop(ActorRef node) {
+        return FutureConverters.toJava(Patterns.gracefulStop(node,
+                Duration.create(ASK_TIMEOUT, TimeUnit.MILLISECONDS)))
+                .toCompletableFuture();
+    }
+
+    /*
+     * Views installed by nodes living in different systems hold
+     * different refs to the same actors (a node refers to itself
+     * through a local ref), compare them by the ids of the members.
+     */
+    private static boolean sameView(View a, View b) {
+        return a.getId() == b.getId() &&
+                a.getMembersIds().equals(b.getMembersIds());
+    }
+
+    public void shutdown() throws Exception {
+        if (shared) {
+            List<CompletableFuture<Boolean>> stopped = new ArrayList<>();
+            stopped.add(stop(groupManager.ref()));
+            for (Node participant : participants)
+                stopped.add(stop(participant.ref()));
+            for (CompletableFuture<Boolean> stop : stopped)
+                stop.get();
+            return;
+        }
+        for (ActorSystem system : systems)
+            system.terminate();
+        for (ActorSystem system : systems)
+            Await.result(system.whenTerminated(), Duration.Inf());
+    }
+}
@@ -1,11 +1,14 @@
 package reliable_multicast;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.ActorRef;
 import akka.actor.Props;
+import reliable_multicast.logging.LogEvent;
 import reliable_multicast.messages.*;
 import reliable_multicast.messages.events_messages.MulticastCrashMsg;
 import reliable_multicast.messages.events_messages.ReceivingCrashMsg;
@@ -23,8 +26,6 @@ public class Participant extends BaseParticipant {
     protected boolean receiveViewChangeAndCrash;
     private String ignoreMessageLabel;
 
-    private boolean isGmAlive;
-
     /*
      * This will be called in the constructor by issuing the super()
      * method.
@@ -40,36 +41,75 @@ public class Participant extends BaseParticipant {
 
     // Constructors -----------------------------
 
-    public Participant(ActorRef groupManager, boolean manualMode) {
-        super(manualMode);
+    public Participant(ActorRef groupManager, int groupId,
+            boolean manualMode, DeliveryListener listener) {
+        super(manualMode, listener);
         this.groupManager = groupManager;
+        this.groupId = groupId;
         this.crashed = false;
-        this.isGmAlive = false;
-        groupManager.tell(new JoinRequestMsg(), this.getSelf());
+        groupManager.tell(new JoinRequestMsg(0, groupId),
+                this.getSelf());
+    }
+
+    public Participant(ActorRef groupManager, boolean manualMode,
+            DeliveryListener listener) {
+        this(groupManager, 0, manualMode, listener);
+    }
+
+    public Participant(ActorRef groupManager, boolean manualMode) {
+        this(groupManager, manualMode, DeliveryListener.NONE);
     }
 
     public Participant(ActorRef groupManager) {
         this(groupManager, false);
     }
 
-    public Participant(String groupManagerPath, boolean manualMode) {
-        super(manualMode);
+    public Participant(String groupManagerPath, int groupId,
+            boolean manualMode, DeliveryListener listener) {
+        super(manualMode, listener);
         this.crashed = false;
-        this.isGmAlive = false;
         this.groupManager = null;
+        this.groupId = groupId;
         getContext().actorSelection(groupManagerPath)
-        .tell(new JoinRequestMsg(),
+        .tell(new JoinRequestMsg(0, groupId),
                 this.getSelf());
     }
 
+    public Participant(String groupManagerPath, boolean manualMode,
+            DeliveryListener listener) {
+        this(groupManagerPath, 0, manualMode, listener);
+    }
+
+    public Participant(String groupManagerPath, boolean manualMode) {
+        this(groupManagerPath, manualMode, DeliveryListener.NONE);
+    }
+
     public Participant(String groupManagerPath) {
         this(groupManagerPath, false);
     }
 
+    /**
+     * Props of a participant of the given group, whose manager is
+     * the given actor.
+     */
     public static Props props(ActorRef groupManager,
-            boolean manualMode) {
+            int groupId,
+            boolean manualMode,
+            DeliveryListener listener) {
         return Props.create(Participant.class,
-                () -> new Participant(groupManager, manualMode));
+                () -> new Participant(groupManager, groupId, manualMode,
+                        listener));
+    }
+
+    public static Props props(ActorRef groupManager,
+            boolean manualMode,
+            DeliveryListener listener) {
+        return props(groupManager, 0, manualMode, listener);
+    }
+
+    public static Props props(ActorRef groupManager,
+            boolean manualMode) {
+        return props(groupManager, manualMode, DeliveryListener.NONE);
     }
 
     public static Props props(ActorRef groupManager) {
@@ -77,9 +117,24 @@ public class Participant extends BaseParticipant {
     }
 
     public static Props props(String groupManagerPath,
-            boolean manualMode) {
+            int groupId,
+            boolean manualMode,
+            DeliveryListener listener) {
         return Props.create(Participant.class,
-                () -> new Participant(groupManagerPath, manualMode));
+                () -> new Participant(groupManagerPath, groupId,
+                        manualMode, listener));
+    }
+
+    public static Props props(String groupManagerPath,
+            boolean manualMode,
+            DeliveryListener listener) {
+        return props(groupManagerPath, 0, manualMode, listener);
+    }
+
+    public static Props props(String groupManagerPath,
+            boolean manualMode) {
+        return props(groupManagerPath, manualMode,
+                DeliveryListener.NONE);
     }
 
     public static Props props(String groupManagerPath) {
@@ -94,18 +149,20 @@ public class Participant extends BaseParticipant {
      * participant.
      */
     private void onJoinMsg(JoinRequestMsg joinResponse) {
-        if (this.crashed)
+        if (this.crashed || joinResponse.groupId != this.groupId)
             return;
         this.id = joinResponse.idAssigned;
         this.groupManager = this.getSender();
-        this.isGmAlive = true;
-        System.out
-        .printf("%d P-%d P-%s JOIN-ASSOC\n",
-                System.currentTimeMillis(),
-                this.id,
+        this.log.log(LogEvent.JOIN_ASSOC, this.id,
                 this.getSelf().path().name());
-        // start checking the groupmanager
-        sendTimeoutMessage(new CheckGmAliveMsg());
+        // in the swim mode the group manager is probed as
+        // any other member
+        if (this.swim != null)
+            return;
+        // start checking the groupmanager, which answers to
+        // heartbeats sent by the participant
+        this.liveness.monitor(this.groupManager, nowMillis());
+        this.scheduleGmCheck();
     }
 
     @Override
@@ -136,16 +193,14 @@ public class Participant extends BaseParticipant {
      // do not install an old view
         if (viewChange.id < this.tempView.id)
             return;
-        System.out.printf("%d P-%d P-%d INFO started_view_change V%d\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
+        View announced = this.announcedView(viewChange);
+        if (announced == null)
+            return;
+        this.log.log(LogEvent.STARTED_VIEW_CHANGE, this.id, this.id,
                 viewChange.id);
-        this.tempView = new View(viewChange.id,
-                viewChange.members,
-                viewChange.membersIds);
-        this.removeOldFlushes(this.tempView.id);
-        int waitTime = 0;
+        this.tempView = announced;
+        this.beginFlushes(this.tempView);
+        long waitTime = 0;
         for (Message message : messagesBuffer) {
             // mark the message as stable
             message = new Message(message, true);
@@ -155,6 +210,20 @@ public class Participant extends BaseParticipant {
         // FLUSHES are not sent
     }
 
+    @Override
+    protected void onSubmitMsg(SubmitMsg submit) {
+        if (this.crashed)
+            return;
+        super.onSubmitMsg(submit);
+    }
+
+    @Override
+    protected void onStableMsg(StableMsg stableMsg) {
+        if (this.crashed)
+            return;
+        super.onStableMsg(stableMsg);
+    }
+
     @Override
     protected void onFlushMsg(FlushMsg flushMsg) {
         if (this.crashed)
@@ -162,6 +231,18 @@ public class Participant extends BaseParticipant {
         super.onFlushMsg(flushMsg);
     }
 
+    /*
+     * In manual mode the events controller waits for the view to
+     * be installed by all of its members before running a step.
+     */
+    @Override
+    protected void onViewInstalled() {
+        super.onViewInstalled();
+        if (this.manualMode && this.groupManager != null)
+            this.groupManager.tell(new ViewInstalledMsg(this.view.id),
+                    this.getSelf());
+    }
+
     @Override
     protected void onReceiveMessage(Message message) {
         if (this.crashed)
@@ -178,10 +259,10 @@ public class Participant extends BaseParticipant {
     }
 
     private void crash() {
-        System.out.printf("%d P-%d P-%d CRASHED\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id);
+        this.log.log(LogEvent.CRASHED, this.id, this.id);
+        if (this.swim != null)
+            this.swim.clear();
+        this.liveness.clear();
         this.resetParticipant();
         this.crashed = true;
         this.canSend = false;
@@ -205,11 +286,17 @@ public class Participant extends BaseParticipant {
         this.crash();
     }
 
+    /*
+     * The request of the group manager is itself an heartbeat of
+     * the group manager.
+     */
     private void onAliveMsg(AliveMsg aliveMsg) {
         if (this.crashed)
             return;
+        this.liveness.heartbeat(this.getSender(), nowMillis());
         this.getSender().tell(new AliveMsg(), 
                 this.getSelf());
+        this.metrics.heartbeatSent();
     }
 
     /**
@@ -219,7 +306,7 @@ public class Participant extends BaseParticipant {
      */
     private void onReviveMsg(ReviveMsg reviveMsg) {
         this.crashed = false;
-        this.groupManager.tell(new JoinRequestMsg(),
+        this.groupManager.tell(new JoinRequestMsg(0, this.groupId),
                 this.getSelf());
     }
 
@@ -236,18 +323,12 @@ public class Participant extends BaseParticipant {
                 this.id,
                 this.multicastId,
                 this.view.id,
-                false);
-        System.out.printf("%d send multicast %d within %d\n",
-                this.id,
-                this.multicastId,
-                this.view.id);
-        System.out.printf("%d P-%d P-%d multicast_message %s\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                message.toString());
+                false,
+                Collections.emptyList());
+        this.log.log(LogEvent.MULTICAST_MESSAGE, this.id, this.id,
+                message);
         this.multicastId += 1;
-        int waitTime;
+        long waitTime;
         waitTime = this.delayedMulticast(message, this.view.members);
         // Do not send stable messages.
         // Crash instead
@@ -286,13 +367,7 @@ public class Participant extends BaseParticipant {
 
         Set<ActorRef> members = this.view.members;
         if (members.size() < 3) {
-            System.out.printf("%d P-%d P-%s WARNING: too few view" +
-                    " members. Two participants and the" +
-                    " group manager are required." +
-                    " Crash denied. Multicast aborted.\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+            this.log.log(LogEvent.TOO_FEW_MEMBERS, this.id, this.id);
             return;
         }
 
@@ -311,9 +386,12 @@ public class Participant extends BaseParticipant {
         Message message = new Message(this.id,
                 this.multicastId,
                 this.tempView.id,
-                false);
+                false,
+                Collections.emptyList());
         this.multicastId += 1;
-        sendMessageAfter(message, 1, receiver);
+        sendMessageAfter(message,
+                this.delayModel.delay(this.getSelf(), receiver, 0),
+                receiver);
         // let the sender crash
         this.crash();
     }
@@ -321,19 +399,13 @@ public class Participant extends BaseParticipant {
     protected void onSendMutlicastCrashMsg(MulticastCrashMsg crashMsg) {
         switch (crashMsg.type) {
         case MULTICAST_N_CRASH:
-            System.out.printf(
-                    "%d P-%d P-%s INFO process will multicast then crash\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+            this.log.log(LogEvent.WILL_MULTICAST_N_CRASH,
+                    this.id, this.id);
             this.multicastAndCrash();
             break;
         case MULTICAST_ONE_N_CRASH:
-            System.out.printf("%d P-%d P-%s INFO process will multicast to one" +
-                    " participant then crash\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+            this.log.log(LogEvent.WILL_MULTICAST_ONE_N_CRASH,
+                    this.id, this.id);
             this.multicastOneAndCrash();
             break;
         }
@@ -344,65 +416,106 @@ public class Participant extends BaseParticipant {
         switch (crashMsg.type) {
         case RECEIVE_MULTICAST_N_CRASH:
             this.receiveMessageAndCrash = true;
-            System.out.printf("%d P-%d P-%s INFO process set to crash on" +
-                    " next message receiving. \n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+            this.log.log(LogEvent.CRASH_ON_MESSAGE, this.id, this.id);
             break;
         case RECEIVE_VIEW_N_CRASH:
             this.receiveViewChangeAndCrash = true;
-            System.out
-                    .printf("%d P-%d P-%s INFO process set to crash on" +
-                            " next view-change message receiving. \n",
-                            System.currentTimeMillis(),
-                            this.id,
-                            this.id);
+            this.log.log(LogEvent.CRASH_ON_VIEW_CHANGE, this.id, this.id);
             break;
         }
     }
 
+    private void scheduleGmCheck() {
+        sendInternalMessage(new CheckGmAliveMsg(),
+                TimeUnit.MILLISECONDS.toMicros(
+                        this.detectorSettings.heartbeatInterval));
+    }
+
     private void onCheckGmAliveMsg(CheckGmAliveMsg msg) {
         if (crashed)
             return;
          //DEBUG: 
-         System.out.printf("%d P-%d P-%d INFO Checking Group Manager\n",
-                 System.currentTimeMillis(),
-                 this.id,
-                 this.id);
-        if (!isGmAlive) {
-            System.out.printf("%d P-%d P-%d INFO Group manager Unreachable." +
-                    " Exiting...\n",
-                    System.currentTimeMillis(),
-                    this.id,
-                    this.id);
+        this.log.log(LogEvent.CHECKING_GM, this.id, this.id);
+        long now = nowMillis();
+        if (!this.liveness.isAvailable(groupManager, now)) {
+            this.log.log(LogEvent.GM_UNREACHABLE, this.id, this.id);
             this.getContext().stop(this.getSelf());
-            this.getContext().system().terminate();
         } else {
-            isGmAlive = false;
-            groupManager.tell(new GmAliveMsg(), this.getSelf());
-            sendTimeoutMessage(new CheckGmAliveMsg());
+            // no need to ask a group manager sending messages
+            if (this.liveness.isSilent(groupManager, now)) {
+                groupManager.tell(new GmAliveMsg(), this.getSelf());
+                this.metrics.heartbeatSent();
+            }
+            this.scheduleGmCheck();
         }
     }
 
+    // --- swim mode ---
+
+    @Override
+    protected boolean canProbe() {
+        return !this.crashed;
+    }
+
+    /*
+     * Suspicions and refutations are reported to the group
+     * manager, which decides on crashes.
+     */
+    @Override
+    protected void onSuspicion(SwimUpdate update) {
+        if (this.groupManager == null ||
+                update.member.equals(this.groupManager))
+            return;
+        this.groupManager.tell(new SuspicionMsg(
+                Collections.singletonList(update)),
+                this.getSelf());
+    }
+
+    /*
+     * The group manager has not refuted the suspicion in time.
+     */
+    @Override
+    protected void onProbeRound(long now) {
+        if (this.groupManager == null ||
+                !this.swim.isExpired(this.groupManager, now,
+                        this.detectorSettings.suspicionTimeout))
+            return;
+        this.log.log(LogEvent.GM_UNREACHABLE, this.id, this.id);
+        this.getContext().stop(this.getSelf());
+    }
+
+    @Override
+    protected void onPingMsg(PingMsg ping) {
+        if (this.crashed)
+            return;
+        super.onPingMsg(ping);
+    }
+
+    @Override
+    protected void onPingReqMsg(PingReqMsg request) {
+        if (this.crashed)
+            return;
+        super.onPingReqMsg(request);
+    }
+
+    @Override
+    protected void onAckMsg(AckMsg ack) {
+        if (this.crashed)
+            return;
+        super.onAckMsg(ack);
+    }
+
     private void onGmAliveMsg(GmAliveMsg msg) {
         if (crashed)
             return;
-        isGmAlive = true;
+        this.liveness.heartbeat(this.getSender(), nowMillis());
          // DEBUG: 
-         System.out.printf("%d P-%d P-%d received_gm_alive_message\n",
-                 System.currentTimeMillis(),
-                 this.id,
-                 this.id);
+        this.log.log(LogEvent.RECEIVED_GM_ALIVE, this.id, this.id);
     }
 
     // DEBUG:
     private void onStepMessage(StepMessage msg) {
-        System.out.printf("%d P-%d P-%s INFO step-%d\n",
-                System.currentTimeMillis(),
-                this.id,
-                this.id,
-                msg.id);
+        this.log.log(LogEvent.STEP, this.id, this.id, msg.id);
     }
 
     @Override
@@ -414,6 +527,11 @@ public class Participant extends BaseParticipant {
                 .match(FlushMsg.class, this::onFlushMsg)
                 .match(Message.class, this::onReceiveMessage)
                 .match(SendMulticastMsg.class, this::onSendMulticastMsg)
+                .match(SubmitMsg.class, this::onSubmitMsg)
+                .match(StableSentMsg.class, this::onStableSentMsg)
+                .match(LingerExpiredMsg.class, this::onLingerExpiredMsg)
+                .match(StableMsg.class, this::onStableMsg)
+                .match(AnnounceStableMsg.class, this::onAnnounceStableMsg)
                 .match(CrashMsg.class, this::onCrashMsg)
                 .match(ReviveMsg.class, this::onReviveMsg)
                 .match(MulticastCrashMsg.class,
@@ -423,6 +541,13 @@ public class Participant extends BaseParticipant {
                 .match(AliveMsg.class, this::onAliveMsg)
                 .match(CheckGmAliveMsg.class, this::onCheckGmAliveMsg)
                 .match(GmAliveMsg.class, this::onGmAliveMsg)
+                .match(LinkDueMsg.class, this::onLinkDueMsg)
+                .match(ProbeTickMsg.class, this::onProbeTickMsg)
+                .match(ProbeTimeoutMsg.class, this::onProbeTimeoutMsg)
+                .match(PingMsg.class, this::onPingMsg)
+                .match(PingReqMsg.class, this::onPingReqMsg)
+                .match(AckMsg.class, this::onAckMsg)
+                .match(StatusRequestMsg.class, this::onStatusRequestMsg)
                 //DEBUG:
                 .match(StepMessage.class,  this::onStepMessage)
                 .build();
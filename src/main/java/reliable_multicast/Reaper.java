@@ -0,0 +1,44 @@
+package reliable_multicast;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Terminated;
+
+/**
+ * Terminate the ActorSystem once all the nodes it hosts have stopped.
+ *
+ * A participant losing its group manager stops itself only, since
+ * the system may host nodes of other groups. A process hosting a
+ * single node still exits when its node stops.
+ */
+public class Reaper extends AbstractActor {
+
+    private final Set<ActorRef> nodes;
+
+    public Reaper(Set<ActorRef> nodes) {
+        this.nodes = new HashSet<>(nodes);
+        for (ActorRef node : this.nodes)
+            this.getContext().watch(node);
+    }
+
+    public static Props props(Set<ActorRef> nodes) {
+        return Props.create(Reaper.class, () -> new Reaper(nodes));
+    }
+
+    private void onTerminated(Terminated terminated) {
+        this.nodes.remove(terminated.getActor());
+        if (this.nodes.isEmpty())
+            this.getContext().getSystem().terminate();
+    }
+
+    @Override
+    public Receive createReceive() {
+        return receiveBuilder()
+                .match(Terminated.class, this::onTerminated)
+                .build();
+    }
+}
@@ -1,31 +1,106 @@
 package reliable_multicast;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import akka.actor.ActorRef;
 
-public class View {
-    int id;
-    Set<ActorRef> members;
-    Set<Integer> membersIds;
+/**
+ * An immutable view.
+ *
+ * Members are kept in a dense array, each one with its index, and
+ * their ids in a bitset. Views are never modified once built, so they
+ * can be shared between actors (and sent within messages) without
+ * copying them. The sets returned by the getters are read-only views
+ * over the same data.
+ */
+public final class View implements Serializable {
+    final int id;
+    private final ActorRef[] memberArray;
+    private final int[] idArray;
+    private final BitSet idBits;
+    // sum of the hash codes of the members
+    private final int membersHash;
 
-    public View(int id, Set<ActorRef> members, Set<Integer> membersIds) {
+    // derived from the fields above, rebuilt on deserialization
+    private transient Map<ActorRef, Integer> indexes;
+    transient Set<ActorRef> members;
+    transient Set<Integer> membersIds;
+
+    public View(int id,
+            Collection<ActorRef> members,
+            Collection<Integer> membersIds) {
         this.id = id;
-        this.members = new HashSet<>(members);
-        this.membersIds = new HashSet<>(membersIds);
+        this.memberArray = members.toArray(new ActorRef[0]);
+        this.idBits = new BitSet();
+        for (Integer memberId : membersIds)
+            this.idBits.set(memberId);
+        this.idArray = this.idBits.stream().toArray();
+        int hash = 0;
+        for (ActorRef member : this.memberArray)
+            hash += member.hashCode();
+        this.membersHash = hash;
+        this.index();
     }
 
     public View(int id) {
-        this(id, new HashSet<>(), new HashSet<>());
+        this(id, new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Build the view following this one, made of the current members
+     * without the ones leaving and with the joining ones.
+     */
+    public View next(int nextId,
+            Collection<ActorRef> joined,
+            Collection<Integer> joinedIds,
+            Collection<ActorRef> left,
+            Collection<Integer> leftIds) {
+        Set<ActorRef> leaving = new HashSet<>(left);
+        List<ActorRef> nextMembers = new ArrayList<>(
+                this.memberArray.length + joined.size());
+        for (ActorRef member : this.memberArray) {
+            if (!leaving.contains(member))
+                nextMembers.add(member);
+        }
+        for (ActorRef member : joined) {
+            if (!this.indexes.containsKey(member))
+                nextMembers.add(member);
+        }
+        BitSet nextIds = (BitSet) this.idBits.clone();
+        for (Integer memberId : leftIds)
+            nextIds.clear(memberId);
+        for (Integer memberId : joinedIds)
+            nextIds.set(memberId);
+        List<Integer> nextIdList = new ArrayList<>();
+        nextIds.stream().forEach(nextIdList::add);
+        return new View(nextId, nextMembers, nextIdList);
     }
 
-    public View(View other) {
-        this.id = other.id;
-        this.members = new HashSet<>(other.members);
-        this.membersIds = new HashSet<>(other.membersIds);
+    private void index() {
+        this.indexes = new HashMap<>(this.memberArray.length * 2);
+        for (int i = 0; i < this.memberArray.length; i++)
+            this.indexes.put(this.memberArray[i], i);
+        this.members = new MemberSet();
+        this.membersIds = new IdSet();
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.index();
     }
 
     public int getId() {
@@ -33,29 +108,61 @@ public class View {
     }
 
     public Set<ActorRef> getMembers() {
-        return new HashSet<>(members);
+        return members;
     }
 
     public Set<Integer> getMembersIds() {
-        return new HashSet<>(membersIds);
+        return membersIds;
+    }
+
+    public int size() {
+        return this.memberArray.length;
+    }
+
+    /**
+     * @return the member at the given index, members are
+     *         indexed from 0 to size() - 1.
+     */
+    public ActorRef member(int index) {
+        return this.memberArray[index];
+    }
+
+    /**
+     * @return the index of the member, -1 if the actor
+     *         is not a member of the view.
+     */
+    public int indexOf(ActorRef actor) {
+        Integer index = this.indexes.get(actor);
+        return index == null ? -1 : index;
+    }
+
+    public boolean contains(ActorRef actor) {
+        return this.indexes.containsKey(actor);
+    }
+
+    public boolean containsId(int memberId) {
+        return memberId >= 0 && this.idBits.get(memberId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * id + membersHash;
     }
 
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
             return true;
-        if (obj == null)
+        if (!(obj instanceof View))
             return false;
-        if (obj instanceof View) {
-            View other = (View) obj;
-            if (id != other.id)
-                return false;
-            if (members == null) {
-                if (other.members != null)
-                    return false;
-            }
-            if (!(members.containsAll(other.members) && other.members
-                    .containsAll(members)))
+        View other = (View) obj;
+        if (id != other.id)
+            return false;
+        if (memberArray.length != other.memberArray.length ||
+                membersHash != other.membersHash)
+            return false;
+        for (ActorRef member : memberArray) {
+            if (!other.indexes.containsKey(member))
                 return false;
         }
         return true;
@@ -69,8 +176,8 @@ public class View {
      */
     public String logMembers() {
         List<String> membersString = new ArrayList<>();
-        for (Integer member : membersIds) {
-            membersString.add(member.toString());
+        for (int member : idArray) {
+            membersString.add(Integer.toString(member));
         }
         return String.join(",", membersString);
     }
@@ -78,10 +185,77 @@ public class View {
     @Override
     public String toString() {
         List<String> membersString = new ArrayList<>();
-        for (ActorRef member : members) {
+        for (ActorRef member : memberArray) {
             membersString.add(member.path().name());
         }
         return "V" + id + "={" +
                 String.join(", ", membersString) + "}";
     }
+
+    private abstract static class ArrayIterator<T> implements Iterator<T> {
+        private final int length;
+        private int next = 0;
+
+        ArrayIterator(int length) {
+            this.length = length;
+        }
+
+        abstract T get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < length;
+        }
+
+        @Override
+        public T next() {
+            if (next >= length)
+                throw new NoSuchElementException();
+            return get(next++);
+        }
+    }
+
+    private class MemberSet extends AbstractSet<ActorRef> {
+        @Override
+        public boolean contains(Object o) {
+            return indexes.containsKey(o);
+        }
+
+        @Override
+        public Iterator<ActorRef> iterator() {
+            return new ArrayIterator<ActorRef>(memberArray.length) {
+                @Override
+                ActorRef get(int index) {
+                    return memberArray[index];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return memberArray.length;
+        }
+    }
+
+    private class IdSet extends AbstractSet<Integer> {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && containsId((Integer) o);
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new ArrayIterator<Integer>(idArray.length) {
+                @Override
+                Integer get(int index) {
+                    return idArray[index];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return idArray.length;
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package reliable_multicast.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.typesafe.config.Config;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+
+/**
+ * Event log of the nodes of an ActorSystem.
+ *
+ * Handlers do not write on the console: they record the event, along
+ * with its arguments, into a ring buffer and go on. A background
+ * thread drains the buffer and writes a line per event in the format
+ *
+ *   <timestamp> P-<process> P-<peer> <event text>
+ *
+ * read by the TraceAnalyzer. Events below the level of the log are
+ * discarded without being recorded. If the buffer is full the event
+ * is dropped and a line reporting the number of events dropped is
+ * written later on.
+ *
+ * Arguments of a record are turned into text by the background
+ * thread, so they must not be modified once logged.
+ *
+ * Events can also be written into a binary trace (see TraceWriter),
+ * much more compact than the console lines. Traces of the nodes of a
+ * run are merged by the TraceAnalyzer.
+ */
+public class EventLog implements Extension {
+
+    public static final String CONFIG_PATH = "participant.log";
+
+    public static class Id extends AbstractExtensionId<EventLog>
+            implements ExtensionIdProvider {
+
+        @Override
+        public Id lookup() {
+            return EventLog.ID;
+        }
+
+        @Override
+        public EventLog createExtension(ExtendedActorSystem system) {
+            Config config = system.settings().config()
+                    .getConfig(CONFIG_PATH);
+            Level level = Level.fromName(config.getString("level"));
+            TraceWriter trace = null;
+            String traceDir = config.getString("trace_dir");
+            if (!traceDir.isEmpty() && level != Level.OFF) {
+                // one trace per system, named after its port if any
+                String prefix = system.name() + "-";
+                if (system.provider().getDefaultAddress().port()
+                        .isDefined())
+                    prefix += system.provider().getDefaultAddress()
+                            .port().get() + "-";
+                try {
+                    trace = TraceWriter.create(new File(traceDir), prefix);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(
+                            "cannot create a trace in " + traceDir, e);
+                }
+            }
+            EventLog log = new EventLog(level,
+                    config.getInt("buffer_size"),
+                    config.getBoolean("console") ? System.out : null,
+                    trace,
+                    "event-log-" + system.name());
+            system.registerOnTermination(log::close);
+            return log;
+        }
+    }
+
+    public static final Id ID = new Id();
+
+    public static EventLog get(ActorSystem system) {
+        return ID.get(system);
+    }
+
+    // time (ns) the drainer waits when the buffer is empty
+    private static final long IDLE_WAIT = 1_000_000;
+    // max size of the text written at once
+    private static final int MAX_BATCH = 64 * 1024;
+
+    private final Level level;
+    private final EventRing ring;
+    // where lines are written, if not null
+    private final PrintStream out;
+    // where records are written, if not null
+    private TraceWriter trace;
+    private final AtomicLong dropped;
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    /**
+     * @param level events below it are discarded
+     * @param capacity max number of records buffered
+     * @param out where lines are written, null for none
+     * @param trace where records are written, null for none
+     * @param name of the background thread
+     */
+    public EventLog(Level level,
+            int capacity,
+            PrintStream out,
+            TraceWriter trace,
+            String name) {
+        this.level = level;
+        this.ring = new EventRing(capacity);
+        this.out = out;
+        this.trace = trace;
+        this.dropped = new AtomicLong();
+        this.closed = false;
+        this.drainer = new Thread(this::drain, name);
+        this.drainer.setDaemon(true);
+        if (level != Level.OFF)
+            this.drainer.start();
+    }
+
+    public Level level() {
+        return level;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    /**
+     * @return the number of events dropped as the buffer was full,
+     *         since the last line reporting them.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public void log(LogEvent event, int process, int peer) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, process, null, peer, null, null, 0);
+    }
+
+    public void log(LogEvent event, int process, int peer, long value) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, process, null, peer, null, null, value);
+    }
+
+    public void log(LogEvent event, int process, int peer,
+            Object detail) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, process, null, peer, null, detail, 0);
+    }
+
+    public void log(LogEvent event, int process, int peer,
+            Object detail, long value) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, process, null, peer, null, detail, value);
+    }
+
+    public void log(LogEvent event, int process, String peer) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, process, null, 0, peer, null, 0);
+    }
+
+    public void log(LogEvent event, String process, String peer) {
+        if (event.level.compareTo(this.level) >= 0)
+            record(event, 0, process, 0, peer, null, 0);
+    }
+
+    private void record(LogEvent event,
+            int process,
+            String processName,
+            int peer,
+            String peerName,
+            Object detail,
+            long value) {
+        long position = ring.claim();
+        if (position < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        EventRing.Record record = ring.record(position);
+        record.time = System.currentTimeMillis();
+        record.event = event;
+        record.process = process;
+        record.processName = processName;
+        record.peer = peer;
+        record.peerName = peerName;
+        record.detail = detail;
+        record.value = value;
+        ring.publish(position);
+    }
+
+    private static void format(EventRing.Record record,
+            StringBuilder line) {
+        line.append(record.time).append(" P-");
+        if (record.processName != null)
+            line.append(record.processName);
+        else
+            line.append(record.process);
+        line.append(" P-");
+        if (record.peerName != null)
+            line.append(record.peerName);
+        else
+            line.append(record.peer);
+        line.append(' ');
+        if (record.event.plain)
+            line.append(record.event.format);
+        else
+            line.append(String.format(record.event.format,
+                    record.detail,
+                    record.value));
+        line.append('\n');
+    }
+
+    private void write(StringBuilder batch) {
+        if (this.out != null) {
+            this.out.print(batch);
+            this.out.flush();
+        }
+        batch.setLength(0);
+    }
+
+    private void trace(EventRing.Record record) {
+        try {
+            this.trace.write(record);
+        } catch (IOException e) {
+            this.stopTracing(e);
+        }
+    }
+
+    private void stopTracing(IOException e) {
+        System.err.println("event log: trace stopped, " + e);
+        try {
+            this.trace.close();
+        } catch (IOException closing) {
+            // already failing
+        }
+        this.trace = null;
+    }
+
+    private void drain() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            // records published before closing are still written
+            boolean last = closed;
+            boolean drained = false;
+            EventRing.Record record;
+            while ((record = ring.peek()) != null) {
+                if (this.out != null)
+                    format(record, batch);
+                if (this.trace != null)
+                    this.trace(record);
+                ring.release();
+                drained = true;
+                if (batch.length() >= MAX_BATCH)
+                    write(batch);
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                drained = true;
+                if (this.out != null)
+                    batch.append("event log: ").append(lost)
+                            .append(" events dropped\n");
+                else
+                    System.err.println("event log: " + lost +
+                            " events dropped");
+            }
+            if (drained) {
+                write(batch);
+                if (this.trace != null) {
+                    try {
+                        this.trace.flush();
+                    } catch (IOException e) {
+                        this.stopTracing(e);
+                    }
+                }
+            } else if (last) {
+                if (this.trace != null) {
+                    try {
+                        this.trace.close();
+                    } catch (IOException e) {
+                        this.stopTracing(e);
+                    }
+                }
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_WAIT);
+            }
+        }
+    }
+
+    /**
+     * Write the events recorded so far and stop the background
+     * thread. Events logged afterwards are not written.
+     */
+    public void close() {
+        closed = true;
+        if (!drainer.isAlive() || Thread.currentThread() == drainer)
+            return;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package reliable_multicast.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded ring of event records, filled by many producers (the actors
+ * of a system) and drained by a single consumer.
+ *
+ * Records are allocated once and reused. Each slot has a sequence
+ * number telling whether it is free for the producer claiming a given
+ * position or ready to be consumed. Producers claim a position with a
+ * CAS on the tail and never wait: when the ring is full the record is
+ * simply not claimed.
+ */
+final class EventRing {
+
+    static final class Record {
+        long time;
+        LogEvent event;
+        int process;
+        // used in place of the id when not null
+        String processName;
+        int peer;
+        String peerName;
+        Object detail;
+        long value;
+    }
+
+    private final Record[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail;
+    // next position to be consumed, owned by the consumer
+    private long head;
+
+    EventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.records = new Record[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.records[i] = new Record();
+            this.sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        this.head = 0;
+    }
+
+    int capacity() {
+        return records.length;
+    }
+
+    /**
+     * Claim the next position of the ring.
+     *
+     * @return the position claimed, -1 if the ring is full.
+     */
+    long claim() {
+        while (true) {
+            long position = tail.get();
+            long sequence = sequences.get((int) position & mask);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1))
+                    return position;
+            } else if (sequence < position) {
+                // the slot has not been consumed yet
+                return -1;
+            }
+            // another producer claimed the position, try the next one
+        }
+    }
+
+    Record record(long position) {
+        return records[(int) position & mask];
+    }
+
+    /**
+     * Make the record of a claimed position visible to the consumer.
+     */
+    void publish(long position) {
+        sequences.lazySet((int) position & mask, position + 1);
+    }
+
+    /**
+     * @return the next record to be consumed, null if it has not been
+     *         published yet.
+     */
+    Record peek() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1)
+            return null;
+        return records[index];
+    }
+
+    /**
+     * Give the slot of the record returned by peek back to producers.
+     */
+    void release() {
+        int index = (int) head & mask;
+        Record record = records[index];
+        record.event = null;
+        record.processName = null;
+        record.peerName = null;
+        record.detail = null;
+        sequences.lazySet(index, head + records.length);
+        head++;
+    }
+}
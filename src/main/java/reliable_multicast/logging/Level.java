@@ -0,0 +1,27 @@
+package reliable_multicast.logging;
+
+/**
+ * Severity of a logged event. Events below the level of the log are
+ * discarded before being recorded.
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARNING,
+    ERROR,
+    // no event is logged
+    OFF;
+
+    /**
+     * @param name the name of the level, case insensitive
+     * @return
+     * @throws IllegalArgumentException if the level is unknown
+     */
+    public static Level fromName(String name) {
+        for (Level level : values()) {
+            if (level.name().equalsIgnoreCase(name.trim()))
+                return level;
+        }
+        throw new IllegalArgumentException("unknown log level: " + name);
+    }
+}
@@ -0,0 +1,99 @@
+package reliable_multicast.logging;
+
+/**
+ * Events logged by the nodes.
+ *
+ * Each event has a level and the format of the text following the
+ * "<timestamp> P-<process> P-<peer>" prefix of its line. The format
+ * is given the detail object of the record as first argument and its
+ * value as second one, e.g. "installed_view %1$s" or "step-%2$d".
+ */
+public enum LogEvent {
+    // --- group manager ---
+    GM_INITIATED(Level.INFO, "INFO Group_manager_initiated"),
+    INITIAL_VIEW(Level.INFO, "INFO View %1$s"),
+    JOIN_REQUEST(Level.INFO, "INFO join_request"),
+    JOIN_REJECTED(Level.WARNING,
+            "WARNING join request for group %2$d rejected"),
+    VIEW_CHANGED(Level.INFO, "INFO view_changed: %1$s"),
+    CHECKING_SURVIVORS(Level.DEBUG, "INFO Checking survivors"),
+    NODES_CRASHED(Level.INFO, "INFO nodes: %1$s crashed."),
+    RECEIVED_ALIVE(Level.DEBUG, "received_alive_message"),
+    SUSPICION_CONFIRMED(Level.INFO, "INFO suspicion confirmed: %1$s"),
+    CHANGES_COALESCED(Level.INFO, "INFO coalesced %1$s joins and %2$s crashes"),
+
+    // --- participants ---
+    JOIN_ASSOC(Level.INFO, "JOIN-ASSOC"),
+    CRASHED(Level.INFO, "CRASHED"),
+    CHECKING_GM(Level.DEBUG, "INFO Checking Group Manager"),
+    RECEIVED_GM_ALIVE(Level.DEBUG, "received_gm_alive_message"),
+    GM_UNREACHABLE(Level.INFO,
+            "INFO Group manager Unreachable. Exiting..."),
+    TOO_FEW_MEMBERS(Level.WARNING, "WARNING: too few view members." +
+            " Two participants and the group manager are required." +
+            " Crash denied. Multicast aborted."),
+    WILL_MULTICAST_N_CRASH(Level.INFO,
+            "INFO process will multicast then crash"),
+    WILL_MULTICAST_ONE_N_CRASH(Level.INFO,
+            "INFO process will multicast to one participant then crash"),
+    CRASH_ON_MESSAGE(Level.INFO,
+            "INFO process set to crash on next message receiving. "),
+    CRASH_ON_VIEW_CHANGE(Level.INFO,
+            "INFO process set to crash on next view-change" +
+            " message receiving. "),
+
+    // --- protocol ---
+    STOPPED_MULTICASTING(Level.INFO, "INFO stopped_multicasting"),
+    STARTED_VIEW_CHANGE(Level.INFO, "INFO started_view_change V%2$d"),
+    VIEW_CHANGE_SUPERSEDED(Level.INFO,
+            "INFO view_change V%1$s superseded by V%2$d"),
+    RECEIVED_FLUSH(Level.INFO, "received_flush V%2$d"),
+    INSTALLED_VIEW(Level.INFO, "installed_view %1$s"),
+    INSTALLED_VIEW_MEMBERS(Level.DEBUG,
+            "DEBUG install view %2$d %1$s"),
+    CAN_SEND(Level.INFO, "INFO can_send"),
+    MULTICAST_MESSAGE(Level.INFO, "multicast_message %1$s"),
+    MULTICAST_SKIPPED(Level.INFO,
+            "INFO multicast skipped, %2$d messages in flight"),
+    DELIVERED_MESSAGE(Level.INFO, "delivered_message %1$s"),
+    SUSPECTED(Level.INFO, "INFO suspected %1$s"),
+    REFUTED(Level.INFO, "INFO refuted suspicion, %1$s"),
+    METRICS_UNAVAILABLE(Level.WARNING,
+            "WARNING metrics not registered: %1$s"),
+
+    // --- events controller ---
+    STEP(Level.INFO, "INFO step-%2$d"),
+    VIEW_UNSTABLE(Level.INFO, "INFO view_unstable"),
+    WAITING_VIEW_INSTALLED(Level.INFO,
+            "INFO waiting view installation for step-%2$d"),
+    MISSING_VIEW_PROCESSES(Level.INFO,
+            "INFO missing processes in the view for step-%2$d"),
+    MISSING_PROCESSES(Level.WARNING,
+            "WARNING missing processes for step-%2$d"),
+    WRONG_CONFIGURATION(Level.WARNING,
+            "WARNING wrong processes configuration for step-%2$d"),
+    CRASHED_SENDER(Level.ERROR, "ERROR process p%1$s cannot send in" +
+            " step-%2$d. It's crashed. Check the conf. file."),
+    CONCURRENT_SENDS(Level.WARNING, "WARNING process p%1$s had two" +
+            " concurrent sending events in step-%2$d. The normal" +
+            " multicast has been ignored. Check the conf. file."),
+    ALIVE_REVIVED(Level.ERROR, "ERROR process p%1$s cannot revive in" +
+            " step-%2$d. It's still alive. Check the conf. file."),
+    CRASHED_RECEIVER(Level.ERROR, "ERROR process p%1$s cannot crash." +
+            " It's not alive. Check the conf. file.");
+
+    final Level level;
+    final String format;
+    // the text of the event has no argument
+    final boolean plain;
+
+    private LogEvent(Level level, String format) {
+        this.level = level;
+        this.format = format;
+        this.plain = format.indexOf('%') < 0;
+    }
+
+    public Level level() {
+        return level;
+    }
+}
@@ -0,0 +1,46 @@
+package reliable_multicast.logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Read the events of the console log of a node, i.e. the lines in the
+ * "<timestamp> P-<process> P-<peer> <event>" format. Other lines are
+ * skipped.
+ */
+public class LogReader implements TraceSource {
+
+    private static final Pattern LINE = Pattern.compile(
+            "^(\\d+) P-(\\S+) P-(\\S+) (.*)$");
+
+    private final BufferedReader reader;
+
+    public LogReader(InputStream in) {
+        this.reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public TraceEntry next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Matcher matcher = LINE.matcher(line);
+            if (matcher.matches())
+                return new TraceEntry(Long.parseLong(matcher.group(1)),
+                        matcher.group(2),
+                        matcher.group(3),
+                        matcher.group(4));
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,267 @@
+package reliable_multicast.logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Merge the traces (or console logs) of the nodes of a run into a
+ * single, time ordered, sequence of events and produce:
+ *
+ *   - the input of mscgen, drawing an arc from the process logging
+ *     each event to its peer;
+ *   - a CSV summary giving, for each process and kind of event, the
+ *     number of events and the time of the first and last one;
+ *   - the merged log, in the console format.
+ *
+ * Inputs sorted by time (traces and the log of a single node are)
+ * are streamed, and a k-way merge picks the earliest event among
+ * their heads: memory does not depend on their length. An input not
+ * sorted, e.g. the consoles of several nodes concatenated in a
+ * single log, is found by a first pass and sorted in memory. Drawing
+ * the chart takes a further pass, to collect the processes to be
+ * declared first.
+ *
+ * Usage:
+ *   TraceAnalyzer [-msc file] [-csv file] [-log file] input...
+ * with no output given the chart is written in sequence.txt.
+ */
+public class TraceAnalyzer {
+
+    public interface Handler {
+        void accept(TraceEntry entry) throws IOException;
+    }
+
+    private static class Cursor {
+        final TraceSource source;
+        final int index;
+        TraceEntry head;
+
+        Cursor(TraceSource source, int index) {
+            this.source = source;
+            this.index = index;
+        }
+    }
+
+    private static class Stats {
+        long count;
+        long first;
+        long last;
+    }
+
+    private final List<File> inputs;
+    // whether each input is sorted by time, null until checked
+    private final Boolean[] sorted;
+
+    public TraceAnalyzer(List<File> inputs) {
+        this.inputs = inputs;
+        this.sorted = new Boolean[inputs.size()];
+    }
+
+    private static boolean isSorted(File input) throws IOException {
+        try (TraceSource source = TraceSource.open(input)) {
+            long last = Long.MIN_VALUE;
+            TraceEntry entry;
+            while ((entry = source.next()) != null) {
+                if (entry.time < last)
+                    return false;
+                last = entry.time;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Open the i-th input as a source sorted by time. An input not
+     * sorted is read in memory and sorted, events with the same
+     * time keeping their order.
+     */
+    private TraceSource open(int i) throws IOException {
+        File input = inputs.get(i);
+        if (sorted[i] == null)
+            sorted[i] = isSorted(input);
+        if (sorted[i])
+            return TraceSource.open(input);
+        List<TraceEntry> entries = new ArrayList<>();
+        try (TraceSource source = TraceSource.open(input)) {
+            TraceEntry entry;
+            while ((entry = source.next()) != null)
+                entries.add(entry);
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.time));
+        Iterator<TraceEntry> iterator = entries.iterator();
+        return new TraceSource() {
+            @Override
+            public TraceEntry next() {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Hand the events of all the inputs to the handler, by time.
+     * Events with the same time are given in the order of the inputs.
+     */
+    public void merge(Handler handler) throws IOException {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(
+                Math.max(1, inputs.size()),
+                (a, b) -> a.head.time != b.head.time ?
+                        Long.compare(a.head.time, b.head.time) :
+                        Integer.compare(a.index, b.index));
+        List<TraceSource> sources = new ArrayList<>();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                Cursor cursor = new Cursor(open(i), i);
+                sources.add(cursor.source);
+                cursor.head = cursor.source.next();
+                if (cursor.head != null)
+                    heads.add(cursor);
+            }
+            while (!heads.isEmpty()) {
+                Cursor cursor = heads.poll();
+                handler.accept(cursor.head);
+                cursor.head = cursor.source.next();
+                if (cursor.head != null)
+                    heads.add(cursor);
+            }
+        } finally {
+            for (TraceSource source : sources)
+                source.close();
+        }
+    }
+
+    private static String label(String process) {
+        return "\"P-" + process + "\"";
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Write the outputs, each one can be null.
+     */
+    public void analyze(Writer msc, Writer csv, Writer log)
+            throws IOException {
+        if (msc != null) {
+            Set<String> processes = new TreeSet<>();
+            merge(entry -> {
+                processes.add("P-" + entry.process);
+                processes.add("P-" + entry.peer);
+            });
+            msc.write("msc {\n");
+            List<String> labels = new ArrayList<>();
+            for (String process : processes)
+                labels.add("\"" + process + "\"");
+            msc.write(String.join(",", labels));
+            msc.write(";\n");
+        }
+        Map<String, Map<String, Stats>> summary = new TreeMap<>();
+        merge(entry -> {
+            if (msc != null)
+                msc.write(label(entry.process) + "<=" +
+                        label(entry.peer) +
+                        " [label=\"" + escape(entry.text) + "\"];\n");
+            if (log != null)
+                log.write(entry.toString() + "\n");
+            if (csv != null) {
+                Stats stats = summary
+                        .computeIfAbsent(entry.process,
+                                process -> new TreeMap<>())
+                        .computeIfAbsent(entry.event(),
+                                event -> new Stats());
+                if (stats.count == 0)
+                    stats.first = entry.time;
+                stats.last = entry.time;
+                stats.count++;
+            }
+        });
+        if (msc != null)
+            msc.write("}\n");
+        if (csv != null) {
+            csv.write("process,event,count,first,last\n");
+            for (Map.Entry<String, Map<String, Stats>> process :
+                    summary.entrySet()) {
+                for (Map.Entry<String, Stats> event :
+                        process.getValue().entrySet()) {
+                    Stats stats = event.getValue();
+                    csv.write(process.getKey() + "," +
+                            event.getKey() + "," +
+                            stats.count + "," +
+                            stats.first + "," +
+                            stats.last + "\n");
+                }
+            }
+        }
+    }
+
+    private static Writer open(String path) throws IOException {
+        if (path == null)
+            return null;
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path), StandardCharsets.UTF_8),
+                64 * 1024);
+    }
+
+    private static void close(Writer writer) throws IOException {
+        if (writer != null)
+            writer.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String mscPath = null;
+        String csvPath = null;
+        String logPath = null;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+            case "-msc":
+                mscPath = args[++i];
+                break;
+            case "-csv":
+                csvPath = args[++i];
+                break;
+            case "-log":
+                logPath = args[++i];
+                break;
+            default:
+                inputs.add(new File(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("usage: TraceAnalyzer [-msc file]" +
+                    " [-csv file] [-log file] input...");
+            System.exit(-1);
+        }
+        if (mscPath == null && csvPath == null && logPath == null)
+            mscPath = "sequence.txt";
+
+        Writer msc = open(mscPath);
+        Writer csv = open(csvPath);
+        Writer log = open(logPath);
+        try {
+            new TraceAnalyzer(inputs).analyze(msc, csv, log);
+        } finally {
+            close(msc);
+            close(csv);
+            close(log);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package reliable_multicast.logging;
+
+/**
+ * An event read from a trace or from a console log.
+ */
+public final class TraceEntry {
+    public final long time;
+    // labels of the process logging the event and of its peer,
+    // e.g. "1" or "gm"
+    public final String process;
+    public final String peer;
+    // text of the event, as printed after the labels
+    public final String text;
+
+    public TraceEntry(long time, String process, String peer,
+            String text) {
+        this.time = time;
+        this.process = process;
+        this.peer = peer;
+        this.text = text;
+    }
+
+    /**
+     * @return the name of the event, i.e. the first word of its text
+     *         past the level tag (e.g. "delivered_message").
+     */
+    public String event() {
+        String[] words = text.split(" ", 3);
+        int index = 0;
+        switch (words[0]) {
+        case "DEBUG":
+        case "INFO":
+        case "WARNING":
+        case "WARNING:":
+        case "ERROR":
+            if (words.length > 1)
+                index = 1;
+            break;
+        default:
+            break;
+        }
+        String event = words[index];
+        if (event.endsWith(":"))
+            event = event.substring(0, event.length() - 1);
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return time + " P-" + process + " P-" + peer + " " + text;
+    }
+}
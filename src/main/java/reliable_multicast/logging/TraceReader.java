@@ -0,0 +1,138 @@
+package reliable_multicast.logging;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import reliable_multicast.serialization.BinaryReader;
+
+/**
+ * Read the events of a binary trace written by a TraceWriter.
+ *
+ * Records are read one at a time into a reused buffer. A record cut
+ * short at the end of the trace (e.g. the node has been killed while
+ * writing it) ends the trace.
+ */
+public class TraceReader implements TraceSource {
+
+    private final InputStream in;
+    // names of the events, by index
+    private final String[] names;
+    // LogEvent with the name of each index, null if unknown
+    private final LogEvent[] events;
+    private byte[] buffer;
+    private long time;
+
+    public TraceReader(InputStream in) throws IOException {
+        this.in = in;
+        int magic = 0;
+        for (int i = 0; i < 4; i++)
+            magic = (magic << 8) | this.readByte();
+        if (magic != TraceWriter.MAGIC)
+            throw new IOException("not a trace");
+        int version = this.readVarint();
+        if (version != TraceWriter.VERSION)
+            throw new IOException("unsupported trace version " + version);
+        int count = this.readVarint();
+        this.names = new String[count];
+        this.events = new LogEvent[count];
+        for (int i = 0; i < count; i++) {
+            this.buffer = new byte[this.readVarint()];
+            this.readFully(this.buffer.length);
+            this.names[i] = new String(this.buffer,
+                    StandardCharsets.UTF_8);
+            try {
+                this.events[i] = LogEvent.valueOf(this.names[i]);
+            } catch (IllegalArgumentException e) {
+                // written by a different version of the nodes
+                this.events[i] = null;
+            }
+        }
+        this.buffer = new byte[256];
+        this.time = 0;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0)
+            throw new EOFException();
+        return b;
+    }
+
+    private int readVarint() throws IOException {
+        return this.readVarint(this.readByte());
+    }
+
+    private int readVarint(int first) throws IOException {
+        int b = first;
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+            b = this.readByte();
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private void readFully(int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(this.buffer, read, length - read);
+            if (n < 0)
+                throw new EOFException();
+            read += n;
+        }
+    }
+
+    @Override
+    public TraceEntry next() throws IOException {
+        BinaryReader record;
+        try {
+            int first = in.read();
+            if (first < 0)
+                return null;
+            int length = this.readVarint(first);
+            if (length > this.buffer.length)
+                this.buffer = new byte[Math.max(length,
+                        this.buffer.length * 2)];
+            this.readFully(length);
+            record = new BinaryReader(this.buffer, length);
+        } catch (EOFException e) {
+            // truncated record
+            return null;
+        }
+
+        int index = record.readVarint();
+        this.time += record.readVarlong();
+        int flags = record.readByte();
+        String process = (flags & TraceWriter.PROCESS_NAME) != 0 ?
+                record.readString() :
+                Integer.toString(record.readInt());
+        String peer = (flags & TraceWriter.PEER_NAME) != 0 ?
+                record.readString() :
+                Integer.toString(record.readInt());
+        String detail = (flags & TraceWriter.DETAIL) != 0 ?
+                record.readString() : null;
+        long value = (flags & TraceWriter.VALUE) != 0 ?
+                record.readLong() : 0;
+
+        String text;
+        LogEvent event = index < events.length ? events[index] : null;
+        if (event == null)
+            text = (index < names.length ? names[index] : "event" + index) +
+                    (detail != null ? " " + detail : "") +
+                    (value != 0 ? " " + value : "");
+        else if (event.plain)
+            text = event.format;
+        else
+            text = String.format(event.format, detail, value);
+        return new TraceEntry(this.time, process, peer, text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
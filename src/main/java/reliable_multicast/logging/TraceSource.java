@@ -0,0 +1,37 @@
+package reliable_multicast.logging;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A stream of events, in the order they were recorded: traces and
+ * the log of a single node are sorted by time.
+ */
+public interface TraceSource extends Closeable {
+
+    /**
+     * @return the next event, null at the end of the source.
+     */
+    TraceEntry next() throws IOException;
+
+    /**
+     * Open a binary trace or the console log of a node, telling them
+     * apart by the magic number of traces.
+     */
+    static TraceSource open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(
+                new FileInputStream(file), 64 * 1024);
+        in.mark(4);
+        int magic = 0;
+        for (int i = 0; i < 4; i++)
+            magic = (magic << 8) | (in.read() & 0xFF);
+        in.reset();
+        if (magic == TraceWriter.MAGIC)
+            return new TraceReader(in);
+        return new LogReader(in);
+    }
+}
@@ -0,0 +1,114 @@
+package reliable_multicast.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import reliable_multicast.serialization.BinaryWriter;
+
+/**
+ * Write events into a binary trace.
+ *
+ * A trace starts with a header made of a magic number, the format
+ * version and the names of the events, so that events are written as
+ * indexes in that list. Each record follows as its length plus:
+ *
+ *   event index, time (ms) elapsed since the previous record,
+ *   flags telling which fields follow, process (id or name),
+ *   peer (id or name), detail text, value
+ *
+ * Times of records never go backwards: a record logged with an
+ * earlier time than the previous one (e.g. by a concurrent actor)
+ * gets the time of the previous one. Each trace is thus sorted by
+ * time, as required by the TraceAnalyzer.
+ */
+public class TraceWriter implements Closeable {
+
+    static final int MAGIC = 0x524d5452; // "RMTR"
+    static final int VERSION = 1;
+
+    static final int PROCESS_NAME = 1;
+    static final int PEER_NAME = 2;
+    static final int DETAIL = 4;
+    static final int VALUE = 8;
+
+    private final OutputStream out;
+    private final BinaryWriter record;
+    private final BinaryWriter length;
+    private long lastTime;
+
+    public TraceWriter(OutputStream out) throws IOException {
+        this.out = out;
+        this.record = new BinaryWriter(256);
+        this.length = new BinaryWriter(16);
+        this.lastTime = 0;
+        BinaryWriter header = new BinaryWriter();
+        for (int shift = 24; shift >= 0; shift -= 8)
+            header.writeByte(MAGIC >>> shift);
+        header.writeVarint(VERSION);
+        header.writeVarint(LogEvent.values().length);
+        for (LogEvent event : LogEvent.values())
+            header.writeString(event.name());
+        header.writeTo(out);
+    }
+
+    /**
+     * Create a new trace, with a unique name starting with prefix,
+     * in the given directory.
+     */
+    public static TraceWriter create(File directory, String prefix)
+            throws IOException {
+        directory.mkdirs();
+        File file = File.createTempFile(prefix, ".trace", directory);
+        return new TraceWriter(new BufferedOutputStream(
+                new FileOutputStream(file), 64 * 1024));
+    }
+
+    void write(EventRing.Record event) throws IOException {
+        long time = Math.max(event.time, this.lastTime);
+        int flags = 0;
+        if (event.processName != null)
+            flags |= PROCESS_NAME;
+        if (event.peerName != null)
+            flags |= PEER_NAME;
+        if (event.detail != null)
+            flags |= DETAIL;
+        if (event.value != 0)
+            flags |= VALUE;
+
+        record.reset();
+        record.writeVarint(event.event.ordinal());
+        record.writeVarlong(time - this.lastTime);
+        record.writeByte(flags);
+        if (event.processName != null)
+            record.writeString(event.processName);
+        else
+            record.writeInt(event.process);
+        if (event.peerName != null)
+            record.writeString(event.peerName);
+        else
+            record.writeInt(event.peer);
+        if (event.detail != null)
+            record.writeString(event.detail.toString());
+        if (event.value != 0)
+            record.writeLong(event.value);
+        this.lastTime = time;
+
+        length.reset();
+        length.writeVarint(record.size());
+        length.writeTo(out);
+        record.writeTo(out);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.util.List;
+
+/**
+ * Answer to a PingMsg, directly or on behalf of the target of a
+ * PingReqMsg.
+ */
+public class AckMsg extends GossipMsg {
+    public final int seq;
+
+    public AckMsg(int seq, List<SwimUpdate> updates) {
+        super(updates);
+        this.seq = seq;
+    }
+};
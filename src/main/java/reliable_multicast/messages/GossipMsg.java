@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A message of the SWIM failure detection, carrying the membership
+ * updates gossiped by the sender.
+ */
+public abstract class GossipMsg implements Serializable {
+    public final List<SwimUpdate> updates;
+
+    public GossipMsg(List<SwimUpdate> updates) {
+        this.updates = updates;
+    }
+};
@@ -6,9 +6,17 @@ public class JoinRequestMsg implements Serializable {
     // this kind of message is also used when the Group
     // Manager assigns an ID to the caller
     public final int idAssigned;
+    // group the caller asks to join, or the one it has
+    // been admitted to
+    public final int groupId;
 
-    public JoinRequestMsg(int idAssigned) {
+    public JoinRequestMsg(int idAssigned, int groupId) {
         this.idAssigned = idAssigned;
+        this.groupId = groupId;
+    }
+
+    public JoinRequestMsg(int idAssigned) {
+        this(idAssigned, 0);
     }
 
     public JoinRequestMsg() {
@@ -1,6 +1,10 @@
 package reliable_multicast.messages;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import akka.util.ByteString;
 
 public class Message implements Serializable {
     // id is made of sender pid + message id
@@ -9,12 +13,37 @@ public class Message implements Serializable {
     public final int messageID;
     public final boolean stable;
     public final int viewId;
+    // application data, opaque to the protocol. A message can
+    // carry a batch of payloads, delivered in order. Being
+    // immutable they're shared among copies of the message.
+    public final List<ByteString> payloads;
+    // cumulative stability piggybacked by the sender: all its
+    // messages up to this id are stable (-1 if none)
+    public final int stableUpTo;
 
-    public Message(int pID, int mID, int viewId, boolean stable) {
+    public Message(int pID, int mID, int viewId, boolean stable,
+            List<ByteString> payloads, int stableUpTo) {
         this.senderID = pID;
         this.messageID = mID;
         this.viewId = viewId;
         this.stable = stable;
+        this.payloads = Collections.unmodifiableList(payloads);
+        this.stableUpTo = stableUpTo;
+    }
+
+    public Message(int pID, int mID, int viewId, boolean stable,
+            List<ByteString> payloads) {
+        this(pID, mID, viewId, stable, payloads, -1);
+    }
+
+    public Message(int pID, int mID, int viewId, boolean stable,
+            ByteString payload) {
+        this(pID, mID, viewId, stable,
+                Collections.singletonList(payload));
+    }
+
+    public Message(int pID, int mID, int viewId, boolean stable) {
+        this(pID, mID, viewId, stable, ByteString.empty());
     }
 
     public Message(Message message, boolean stable) {
@@ -22,6 +51,8 @@ public class Message implements Serializable {
         this.messageID = message.messageID;
         this.viewId = message.viewId;
         this.stable = stable;
+        this.payloads = message.payloads;
+        this.stableUpTo = message.stableUpTo;
     }
 
     // this method is required for hash sets
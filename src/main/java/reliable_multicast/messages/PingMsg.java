@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.util.List;
+
+/**
+ * Probe of a member, which answers with an AckMsg carrying the same
+ * sequence number.
+ */
+public class PingMsg extends GossipMsg {
+    public final int seq;
+
+    public PingMsg(int seq, List<SwimUpdate> updates) {
+        super(updates);
+        this.seq = seq;
+    }
+};
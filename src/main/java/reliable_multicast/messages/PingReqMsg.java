@@ -0,0 +1,21 @@
+package reliable_multicast.messages;
+
+import java.util.List;
+
+import akka.actor.ActorRef;
+
+/**
+ * Sent by a node whose probe of target got no answer in time, asking
+ * the receiver to probe the target in its place. The receiver
+ * forwards the ack of the target, with the sequence number given.
+ */
+public class PingReqMsg extends GossipMsg {
+    public final int seq;
+    public final ActorRef target;
+
+    public PingReqMsg(int seq, ActorRef target, List<SwimUpdate> updates) {
+        super(updates);
+        this.seq = seq;
+        this.target = target;
+    }
+};
@@ -0,0 +1,22 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+
+/**
+ * Tells receivers that all the messages sent by senderID in view
+ * viewId, up to stableUpTo, are stable.
+ *
+ * Used when stability is piggybacked on data messages and the
+ * sender has no data message to carry it.
+ */
+public class StableMsg implements Serializable {
+    public final int senderID;
+    public final int viewId;
+    public final int stableUpTo;
+
+    public StableMsg(int senderID, int viewId, int stableUpTo) {
+        this.senderID = senderID;
+        this.viewId = viewId;
+        this.stableUpTo = stableUpTo;
+    }
+};
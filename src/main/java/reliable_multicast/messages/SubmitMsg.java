@@ -0,0 +1,17 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+
+import akka.util.ByteString;
+
+/**
+ * Sent by the application to a node, asking it to multicast the
+ * payload.
+ */
+public class SubmitMsg implements Serializable {
+    public final ByteString payload;
+
+    public SubmitMsg(ByteString payload) {
+        this.payload = payload;
+    }
+};
@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.util.List;
+
+/**
+ * Sent straight to the group manager by a node which starts
+ * suspecting a member, or which refutes a suspicion about itself.
+ * The group manager removes a suspected member from the view if
+ * the suspicion is not refuted in time.
+ */
+public class SuspicionMsg extends GossipMsg {
+
+    public SuspicionMsg(List<SwimUpdate> updates) {
+        super(updates);
+    }
+};
@@ -0,0 +1,42 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+
+import akka.actor.ActorRef;
+
+/**
+ * The state of a member as gossiped by the SWIM failure detection:
+ * alive or suspected, at a given incarnation.
+ *
+ * Only the member itself increases its incarnation, to refute a
+ * suspicion about it. An update about a member overrides the known
+ * state if it has a higher incarnation, or if it's a suspicion with
+ * the same incarnation of an alive member.
+ */
+public class SwimUpdate implements Serializable {
+    public final ActorRef member;
+    public final int incarnation;
+    public final boolean suspect;
+
+    public SwimUpdate(ActorRef member, int incarnation, boolean suspect) {
+        this.member = member;
+        this.incarnation = incarnation;
+        this.suspect = suspect;
+    }
+
+    /**
+     * @return true if this update overrides the given state of the
+     *         same member
+     */
+    public boolean overrides(int incarnation, boolean suspect) {
+        if (this.incarnation != incarnation)
+            return this.incarnation > incarnation;
+        return this.suspect && !suspect;
+    }
+
+    @Override
+    public String toString() {
+        return (this.suspect ? "suspect " : "alive ") +
+                this.member.path().name() + "@" + this.incarnation;
+    }
+};
@@ -1,21 +1,120 @@
 package reliable_multicast.messages;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Set;
+import java.util.List;
 
 import akka.actor.ActorRef;
 import reliable_multicast.View;
 
+/**
+ * Announce a new view.
+ *
+ * The message carries either the whole view (a snapshot) or just the
+ * changes with respect to the previous view: members joined and left.
+ * Snapshots are sent to joining nodes, and to nodes asking for one
+ * with a ViewSnapshotRequestMsg because they do not hold the previous
+ * view.
+ */
 public class ViewChangeMsg implements Serializable {
     public final int id;
-    public final Set<ActorRef> members;
-    public final Set<Integer> membersIds;
+    public final int previousId;
+    public final List<ActorRef> joined;
+    public final List<Integer> joinedIds;
+    public final List<ActorRef> left;
+    public final List<Integer> leftIds;
+    // the whole view, null if the message is a delta
+    public final View view;
 
+    /**
+     * A snapshot of the view.
+     */
     public ViewChangeMsg(View view) {
         this.id = view.getId();
-        this.members = Collections.unmodifiableSet(view.getMembers());
-        this.membersIds = Collections.unmodifiableSet(view.getMembersIds());
+        this.previousId = -1;
+        this.joined = Collections.emptyList();
+        this.joinedIds = Collections.emptyList();
+        this.left = Collections.emptyList();
+        this.leftIds = Collections.emptyList();
+        this.view = view;
+    }
+
+    /**
+     * The changes leading from previous to view.
+     */
+    public ViewChangeMsg(View previous, View view) {
+        this.id = view.getId();
+        this.previousId = previous.getId();
+        List<ActorRef> joined = new ArrayList<>();
+        List<ActorRef> left = new ArrayList<>();
+        List<Integer> joinedIds = new ArrayList<>();
+        List<Integer> leftIds = new ArrayList<>();
+        for (ActorRef member : view.getMembers()) {
+            if (!previous.contains(member))
+                joined.add(member);
+        }
+        for (ActorRef member : previous.getMembers()) {
+            if (!view.contains(member))
+                left.add(member);
+        }
+        for (Integer memberId : view.getMembersIds()) {
+            if (!previous.containsId(memberId))
+                joinedIds.add(memberId);
+        }
+        for (Integer memberId : previous.getMembersIds()) {
+            if (!view.containsId(memberId))
+                leftIds.add(memberId);
+        }
+        this.joined = Collections.unmodifiableList(joined);
+        this.joinedIds = Collections.unmodifiableList(joinedIds);
+        this.left = Collections.unmodifiableList(left);
+        this.leftIds = Collections.unmodifiableList(leftIds);
+        this.view = null;
+    }
+
+    /**
+     * The given changes leading from view previousId to view id.
+     */
+    public ViewChangeMsg(int id,
+            int previousId,
+            List<ActorRef> joined,
+            List<Integer> joinedIds,
+            List<ActorRef> left,
+            List<Integer> leftIds) {
+        this.id = id;
+        this.previousId = previousId;
+        this.joined = Collections.unmodifiableList(joined);
+        this.joinedIds = Collections.unmodifiableList(joinedIds);
+        this.left = Collections.unmodifiableList(left);
+        this.leftIds = Collections.unmodifiableList(leftIds);
+        this.view = null;
+    }
+
+    public boolean isSnapshot() {
+        return this.view != null;
+    }
+
+    /**
+     * Get the announced view, given the last view known by the
+     * receiver.
+     *
+     * @param known
+     * @return the new view, null if it cannot be built since
+     *         known is not the view the changes apply to.
+     */
+    public View apply(View known) {
+        if (this.view != null)
+            return this.view;
+        if (known.getId() == this.id)
+            return known;
+        if (known.getId() != this.previousId)
+            return null;
+        return known.next(this.id,
+                this.joined,
+                this.joinedIds,
+                this.left,
+                this.leftIds);
     }
 
     @Override
@@ -23,9 +122,10 @@ public class ViewChangeMsg implements Serializable {
         final int prime = 31;
         int result = 1;
         result = prime * result + id;
-        result = prime * result + ((members == null) ? 0 : members
-                .hashCode());
-        result = prime * result + ((membersIds == null) ? 0 : membersIds
+        result = prime * result + previousId;
+        result = prime * result + joined.hashCode();
+        result = prime * result + left.hashCode();
+        result = prime * result + ((view == null) ? 0 : view
                 .hashCode());
         return result;
     }
@@ -39,19 +139,17 @@ public class ViewChangeMsg implements Serializable {
         if (!(obj instanceof ViewChangeMsg))
             return false;
         ViewChangeMsg other = (ViewChangeMsg) obj;
-        if (id != other.id)
-            return false;
-        if (members == null) {
-            if (other.members != null)
-                return false;
-        } else if (!members.equals(other.members))
+        if (id != other.id || previousId != other.previousId)
             return false;
-        if (membersIds == null) {
-            if (other.membersIds != null)
+        if (view == null) {
+            if (other.view != null)
                 return false;
-        } else if (!membersIds.equals(other.membersIds))
+        } else if (!view.equals(other.view))
             return false;
-        return true;
+        return joined.equals(other.joined) &&
+                joinedIds.equals(other.joinedIds) &&
+                left.equals(other.left) &&
+                leftIds.equals(other.leftIds);
     }
 
 };
@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+
+/**
+ * Sent to the group manager by a participant, in manual mode, once it
+ * has installed a view. The events controller waits for all the
+ * members of the view to have installed it before running a step.
+ */
+public class ViewInstalledMsg implements Serializable {
+    public final int viewId;
+
+    public ViewInstalledMsg(int viewId) {
+        this.viewId = viewId;
+    }
+};
@@ -0,0 +1,16 @@
+package reliable_multicast.messages;
+
+import java.io.Serializable;
+
+/**
+ * Sent to the group manager by a node which received the changes
+ * leading to a view without holding the view they apply to. The
+ * group manager answers with a snapshot of its latest view.
+ */
+public class ViewSnapshotRequestMsg implements Serializable {
+    public final int viewId;
+
+    public ViewSnapshotRequestMsg(int viewId) {
+        this.viewId = viewId;
+    }
+};
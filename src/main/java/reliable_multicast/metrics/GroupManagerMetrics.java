@@ -0,0 +1,24 @@
+package reliable_multicast.metrics;
+
+import java.util.function.IntSupplier;
+
+public class GroupManagerMetrics extends ParticipantMetrics
+        implements GroupManagerMetricsMBean {
+
+    private final IntSupplier monitoredMembers;
+
+    public GroupManagerMetrics(Gauges gauges, IntSupplier monitoredMembers) {
+        super(gauges);
+        this.monitoredMembers = monitoredMembers;
+    }
+
+    @Override
+    protected String type() {
+        return "GroupManager";
+    }
+
+    @Override
+    public int getMonitoredMembers() {
+        return this.monitoredMembers.getAsInt();
+    }
+}
@@ -0,0 +1,11 @@
+package reliable_multicast.metrics;
+
+/**
+ * Metrics of the group manager exposed through JMX.
+ */
+public interface GroupManagerMetricsMBean extends ParticipantMetricsMBean {
+
+    // number of participants monitored by a failure detector,
+    // i.e. whose heartbeats are awaited
+    int getMonitoredMembers();
+}
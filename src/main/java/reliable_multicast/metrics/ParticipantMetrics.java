@@ -0,0 +1,207 @@
+package reliable_multicast.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of a node, registered as an MBean named
+ *
+ *   reliable_multicast:type=<type>,name=<address of the actor>
+ *
+ * Counters and the histogram are updated by the actor of the node;
+ * they are LongAdders, so updates do not contend with the threads
+ * reading them. Gauges read the state of the actor when asked, hence
+ * the value may be slightly out of date.
+ */
+public class ParticipantMetrics implements ParticipantMetricsMBean {
+
+    public static final String DOMAIN = "reliable_multicast";
+
+    /*
+     * State of the node read by the gauges.
+     */
+    public static class Gauges {
+        public final IntSupplier bufferedMessages;
+        public final IntSupplier collectedFlushes;
+        public final IntSupplier viewId;
+        public final IntSupplier tempViewId;
+
+        public Gauges(IntSupplier bufferedMessages,
+                IntSupplier collectedFlushes,
+                IntSupplier viewId,
+                IntSupplier tempViewId) {
+            this.bufferedMessages = bufferedMessages;
+            this.collectedFlushes = collectedFlushes;
+            this.viewId = viewId;
+            this.tempViewId = tempViewId;
+        }
+    }
+
+    private final LongAdder multicastsSent = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder duplicatesSuppressed = new LongAdder();
+    private final LongAdder flushesReceived = new LongAdder();
+    private final LongAdder viewChanges = new LongAdder();
+    private final LongAdder heartbeatsSent = new LongAdder();
+    private final LatencyHistogram viewChangeDuration =
+            new LatencyHistogram();
+    private final Gauges gauges;
+    private ObjectName name;
+
+    public ParticipantMetrics(Gauges gauges) {
+        this.gauges = gauges;
+    }
+
+    protected String type() {
+        return "Participant";
+    }
+
+    // --- updates, called by the actor ---
+
+    public void multicastSent() {
+        this.multicastsSent.increment();
+    }
+
+    public void delivered() {
+        this.deliveries.increment();
+    }
+
+    public void duplicateSuppressed() {
+        this.duplicatesSuppressed.increment();
+    }
+
+    public void flushReceived() {
+        this.flushesReceived.increment();
+    }
+
+    public void heartbeatSent() {
+        this.heartbeatsSent.increment();
+    }
+
+    /**
+     * @param duration time (ns) from the start of the view change
+     */
+    public void viewInstalled(long duration) {
+        this.viewChanges.increment();
+        this.viewChangeDuration.record(
+                TimeUnit.NANOSECONDS.toMicros(duration));
+    }
+
+    // --- registration ---
+
+    /**
+     * Register the metrics in the platform MBean server. Fails if
+     * an actor with the same address has registered its metrics and
+     * it's still running (e.g. two ActorSystems with the same name
+     * and address in the same JVM).
+     *
+     * @param address address of the actor
+     */
+    public void register(String address) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(DOMAIN + ":type=" + this.type() +
+                ",name=" + ObjectName.quote(address));
+        server.registerMBean(this, name);
+        this.name = name;
+    }
+
+    public void unregister() throws JMException {
+        if (this.name == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(this.name))
+            server.unregisterMBean(this.name);
+        this.name = null;
+    }
+
+    public ObjectName name() {
+        return this.name;
+    }
+
+    // --- MBean ---
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    @Override
+    public long getMulticastsSent() {
+        return this.multicastsSent.sum();
+    }
+
+    @Override
+    public long getDeliveries() {
+        return this.deliveries.sum();
+    }
+
+    @Override
+    public long getDuplicatesSuppressed() {
+        return this.duplicatesSuppressed.sum();
+    }
+
+    @Override
+    public long getFlushesReceived() {
+        return this.flushesReceived.sum();
+    }
+
+    @Override
+    public long getViewChanges() {
+        return this.viewChanges.sum();
+    }
+
+    @Override
+    public long getHeartbeatsSent() {
+        return this.heartbeatsSent.sum();
+    }
+
+    @Override
+    public int getBufferedMessages() {
+        return this.gauges.bufferedMessages.getAsInt();
+    }
+
+    @Override
+    public int getCollectedFlushes() {
+        return this.gauges.collectedFlushes.getAsInt();
+    }
+
+    @Override
+    public int getViewId() {
+        return this.gauges.viewId.getAsInt();
+    }
+
+    @Override
+    public int getTempViewId() {
+        return this.gauges.tempViewId.getAsInt();
+    }
+
+    @Override
+    public long getViewChangeCount() {
+        return this.viewChangeDuration.count();
+    }
+
+    @Override
+    public double getViewChangeMean() {
+        return millis((long) this.viewChangeDuration.mean());
+    }
+
+    @Override
+    public double getViewChangeP50() {
+        return millis(this.viewChangeDuration.percentile(0.5));
+    }
+
+    @Override
+    public double getViewChangeP99() {
+        return millis(this.viewChangeDuration.percentile(0.99));
+    }
+
+    @Override
+    public double getViewChangeMax() {
+        return millis(this.viewChangeDuration.max());
+    }
+}
@@ -0,0 +1,43 @@
+package reliable_multicast.metrics;
+
+/**
+ * Metrics of a node exposed through JMX.
+ *
+ * Durations are given in milliseconds.
+ */
+public interface ParticipantMetricsMBean {
+
+    // --- counters ---
+    long getMulticastsSent();
+
+    long getDeliveries();
+
+    long getDuplicatesSuppressed();
+
+    long getFlushesReceived();
+
+    long getViewChanges();
+
+    // explicit heartbeats, requests and answers
+    long getHeartbeatsSent();
+
+    // --- gauges ---
+    int getBufferedMessages();
+
+    int getCollectedFlushes();
+
+    int getViewId();
+
+    int getTempViewId();
+
+    // --- view change duration ---
+    long getViewChangeCount();
+
+    double getViewChangeMean();
+
+    double getViewChangeP50();
+
+    double getViewChangeP99();
+
+    double getViewChangeMax();
+}
@@ -0,0 +1,108 @@
+package reliable_multicast.serialization;
+
+import java.nio.charset.StandardCharsets;
+
+import akka.util.ByteString;
+
+/**
+ * Read the values written by a BinaryWriter, in the same order.
+ */
+public class BinaryReader {
+
+    private final byte[] buffer;
+    // number of bytes of the buffer holding data
+    private final int length;
+    private int position;
+
+    public BinaryReader(byte[] buffer, int length) {
+        this.buffer = buffer;
+        this.length = length;
+        this.position = 0;
+    }
+
+    public BinaryReader(byte[] buffer) {
+        this(buffer, buffer.length);
+    }
+
+    private void check(int bytes) {
+        if (bytes < 0 || this.position + bytes > this.length)
+            throw new IllegalArgumentException(
+                    "truncated message: " + bytes +
+                    " bytes needed at " + this.position +
+                    " of " + this.length);
+    }
+
+    public int readByte() {
+        this.check(1);
+        return this.buffer[this.position++];
+    }
+
+    public boolean readBoolean() {
+        return this.readByte() != 0;
+    }
+
+    public int readVarint() {
+        int value = 0;
+        int b;
+        for (int shift = 0; shift < 35; shift += 7) {
+            b = this.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    public int readInt() {
+        int value = this.readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readVarlong() {
+        long value = 0;
+        int b;
+        for (int shift = 0; shift < 70; shift += 7) {
+            b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    public long readLong() {
+        long value = this.readVarlong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public byte[] readBytes() {
+        int length = this.readVarint();
+        this.check(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(this.buffer, this.position, bytes, 0, length);
+        this.position += length;
+        return bytes;
+    }
+
+    /**
+     * The ByteString shares the buffer being read, which must not
+     * be modified afterwards.
+     */
+    public ByteString readByteString() {
+        int length = this.readVarint();
+        this.check(length);
+        ByteString value = ByteString.fromArrayUnsafe(this.buffer,
+                this.position, length);
+        this.position += length;
+        return value;
+    }
+
+    public String readString() {
+        int length = this.readVarint();
+        this.check(length);
+        String value = new String(this.buffer, this.position, length,
+                StandardCharsets.UTF_8);
+        this.position += length;
+        return value;
+    }
+}
@@ -0,0 +1,118 @@
+package reliable_multicast.serialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import akka.util.ByteString;
+
+/**
+ * Growable buffer the protocol messages are encoded into.
+ *
+ * Integers are written as varints: 7 bits per byte, the highest bit
+ * telling whether more bytes follow. Signed values are zigzag encoded
+ * first, so small negative values (e.g. -1 for "none") take a single
+ * byte too.
+ */
+public class BinaryWriter {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+        this.position = 0;
+    }
+
+    public BinaryWriter() {
+        this(64);
+    }
+
+    private void ensure(int bytes) {
+        if (this.position + bytes > this.buffer.length)
+            this.buffer = Arrays.copyOf(this.buffer,
+                    Math.max(this.buffer.length * 2,
+                            this.position + bytes));
+    }
+
+    public void writeByte(int value) {
+        this.ensure(1);
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        this.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Write a non-negative value (e.g. a length).
+     */
+    public void writeVarint(int value) {
+        this.ensure(5);
+        while ((value & ~0x7F) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    public void writeInt(int value) {
+        this.writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Write a non-negative long value.
+     */
+    public void writeVarlong(long value) {
+        this.ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    public void writeLong(long value) {
+        this.writeVarlong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBytes(byte[] bytes) {
+        this.writeVarint(bytes.length);
+        this.ensure(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.position,
+                bytes.length);
+        this.position += bytes.length;
+    }
+
+    public void writeByteString(ByteString value) {
+        int length = value.length();
+        this.writeVarint(length);
+        this.ensure(length);
+        value.asByteBuffer().get(this.buffer, this.position, length);
+        this.position += length;
+    }
+
+    public void writeString(String value) {
+        this.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    public int size() {
+        return this.position;
+    }
+
+    /**
+     * Discard the content written so far, keeping the buffer.
+     */
+    public void reset() {
+        this.position = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.buffer, 0, this.position);
+    }
+}
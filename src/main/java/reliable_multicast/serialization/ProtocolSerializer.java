@@ -0,0 +1,315 @@
+package reliable_multicast.serialization;
+
+import java.io.NotSerializableException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import akka.actor.ActorRef;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializerWithStringManifest;
+import akka.util.ByteString;
+import reliable_multicast.View;
+import reliable_multicast.messages.AckMsg;
+import reliable_multicast.messages.AliveMsg;
+import reliable_multicast.messages.FlushMsg;
+import reliable_multicast.messages.GmAliveMsg;
+import reliable_multicast.messages.JoinRequestMsg;
+import reliable_multicast.messages.Message;
+import reliable_multicast.messages.PingMsg;
+import reliable_multicast.messages.PingReqMsg;
+import reliable_multicast.messages.StableMsg;
+import reliable_multicast.messages.StopMulticastMsg;
+import reliable_multicast.messages.SuspicionMsg;
+import reliable_multicast.messages.SwimUpdate;
+import reliable_multicast.messages.ViewChangeMsg;
+import reliable_multicast.messages.ViewSnapshotRequestMsg;
+
+/**
+ * Binary encoding of the messages exchanged by the nodes.
+ *
+ * Each message type is told apart by a one letter manifest, and its
+ * fields are written in a fixed order with the BinaryWriter (ids as
+ * varints, actors as their serialized path). It replaces Java
+ * serialization, which also writes class descriptors and field names
+ * in every message. The binding of the message classes is in
+ * reference.conf.
+ */
+public class ProtocolSerializer extends SerializerWithStringManifest {
+
+    public static final int IDENTIFIER = 27182;
+
+    private static final String MESSAGE = "M";
+    private static final String STABLE = "S";
+    private static final String FLUSH = "F";
+    private static final String VIEW_CHANGE = "V";
+    private static final String VIEW_SNAPSHOT_REQUEST = "R";
+    private static final String STOP_MULTICAST = "X";
+    private static final String ALIVE = "A";
+    private static final String GM_ALIVE = "G";
+    private static final String JOIN_REQUEST = "J";
+    private static final String PING = "P";
+    private static final String PING_REQ = "Q";
+    private static final String ACK = "K";
+    private static final String SUSPICION = "U";
+
+    private final ExtendedActorSystem system;
+
+    public ProtocolSerializer(ExtendedActorSystem system) {
+        this.system = system;
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object o) {
+        if (o instanceof Message)
+            return MESSAGE;
+        if (o instanceof StableMsg)
+            return STABLE;
+        if (o instanceof FlushMsg)
+            return FLUSH;
+        if (o instanceof ViewChangeMsg)
+            return VIEW_CHANGE;
+        if (o instanceof ViewSnapshotRequestMsg)
+            return VIEW_SNAPSHOT_REQUEST;
+        if (o instanceof StopMulticastMsg)
+            return STOP_MULTICAST;
+        if (o instanceof AliveMsg)
+            return ALIVE;
+        if (o instanceof GmAliveMsg)
+            return GM_ALIVE;
+        if (o instanceof JoinRequestMsg)
+            return JOIN_REQUEST;
+        if (o instanceof PingMsg)
+            return PING;
+        if (o instanceof PingReqMsg)
+            return PING_REQ;
+        if (o instanceof AckMsg)
+            return ACK;
+        if (o instanceof SuspicionMsg)
+            return SUSPICION;
+        throw new IllegalArgumentException("cannot serialize " +
+                o.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object o) {
+        BinaryWriter writer;
+        if (o instanceof Message) {
+            Message message = (Message) o;
+            int size = 16;
+            for (ByteString payload : message.payloads)
+                size += payload.length() + 5;
+            writer = new BinaryWriter(size);
+            writer.writeInt(message.senderID);
+            writer.writeInt(message.messageID);
+            writer.writeInt(message.viewId);
+            writer.writeBoolean(message.stable);
+            writer.writeInt(message.stableUpTo);
+            writer.writeVarint(message.payloads.size());
+            for (ByteString payload : message.payloads)
+                writer.writeByteString(payload);
+        } else if (o instanceof StableMsg) {
+            StableMsg stable = (StableMsg) o;
+            writer = new BinaryWriter(16);
+            writer.writeInt(stable.senderID);
+            writer.writeInt(stable.viewId);
+            writer.writeInt(stable.stableUpTo);
+        } else if (o instanceof FlushMsg) {
+            FlushMsg flush = (FlushMsg) o;
+            writer = new BinaryWriter();
+            writer.writeInt(flush.senderID);
+            writer.writeInt(flush.viewID);
+            this.writeActor(writer, flush.sender);
+        } else if (o instanceof ViewChangeMsg) {
+            ViewChangeMsg viewChange = (ViewChangeMsg) o;
+            writer = new BinaryWriter(256);
+            writer.writeInt(viewChange.id);
+            writer.writeBoolean(viewChange.isSnapshot());
+            if (viewChange.isSnapshot()) {
+                this.writeActors(writer, viewChange.view.getMembers());
+                this.writeIds(writer, viewChange.view.getMembersIds());
+            } else {
+                writer.writeInt(viewChange.previousId);
+                this.writeActors(writer, viewChange.joined);
+                this.writeIds(writer, viewChange.joinedIds);
+                this.writeActors(writer, viewChange.left);
+                this.writeIds(writer, viewChange.leftIds);
+            }
+        } else if (o instanceof ViewSnapshotRequestMsg) {
+            writer = new BinaryWriter(16);
+            writer.writeInt(((ViewSnapshotRequestMsg) o).viewId);
+        } else if (o instanceof JoinRequestMsg) {
+            writer = new BinaryWriter(16);
+            JoinRequestMsg join = (JoinRequestMsg) o;
+            writer.writeInt(join.idAssigned);
+            writer.writeInt(join.groupId);
+        } else if (o instanceof PingMsg) {
+            PingMsg ping = (PingMsg) o;
+            writer = new BinaryWriter();
+            writer.writeInt(ping.seq);
+            this.writeUpdates(writer, ping.updates);
+        } else if (o instanceof PingReqMsg) {
+            PingReqMsg pingReq = (PingReqMsg) o;
+            writer = new BinaryWriter();
+            writer.writeInt(pingReq.seq);
+            this.writeActor(writer, pingReq.target);
+            this.writeUpdates(writer, pingReq.updates);
+        } else if (o instanceof AckMsg) {
+            AckMsg ack = (AckMsg) o;
+            writer = new BinaryWriter();
+            writer.writeInt(ack.seq);
+            this.writeUpdates(writer, ack.updates);
+        } else if (o instanceof SuspicionMsg) {
+            writer = new BinaryWriter();
+            this.writeUpdates(writer, ((SuspicionMsg) o).updates);
+        } else if (o instanceof StopMulticastMsg ||
+                o instanceof AliveMsg ||
+                o instanceof GmAliveMsg) {
+            // the manifest is enough
+            return new byte[0];
+        } else {
+            throw new IllegalArgumentException("cannot serialize " +
+                    o.getClass().getName());
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest)
+            throws NotSerializableException {
+        BinaryReader reader = new BinaryReader(bytes);
+        switch (manifest) {
+        case MESSAGE: {
+            int senderID = reader.readInt();
+            int messageID = reader.readInt();
+            int viewId = reader.readInt();
+            boolean stable = reader.readBoolean();
+            int stableUpTo = reader.readInt();
+            int count = reader.readVarint();
+            List<ByteString> payloads = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                payloads.add(reader.readByteString());
+            return new Message(senderID, messageID, viewId, stable,
+                    payloads, stableUpTo);
+        }
+        case STABLE:
+            return new StableMsg(reader.readInt(),
+                    reader.readInt(),
+                    reader.readInt());
+        case FLUSH:
+            return new FlushMsg(reader.readInt(),
+                    reader.readInt(),
+                    this.readActor(reader));
+        case VIEW_CHANGE: {
+            int id = reader.readInt();
+            if (reader.readBoolean()) {
+                List<ActorRef> members = this.readActors(reader);
+                return new ViewChangeMsg(new View(id,
+                        members,
+                        this.readIds(reader)));
+            }
+            int previousId = reader.readInt();
+            List<ActorRef> joined = this.readActors(reader);
+            List<Integer> joinedIds = this.readIds(reader);
+            List<ActorRef> left = this.readActors(reader);
+            List<Integer> leftIds = this.readIds(reader);
+            return new ViewChangeMsg(id, previousId,
+                    joined, joinedIds,
+                    left, leftIds);
+        }
+        case VIEW_SNAPSHOT_REQUEST:
+            return new ViewSnapshotRequestMsg(reader.readInt());
+        case JOIN_REQUEST:
+            return new JoinRequestMsg(reader.readInt(), reader.readInt());
+        case STOP_MULTICAST:
+            return new StopMulticastMsg();
+        case ALIVE:
+            return new AliveMsg();
+        case GM_ALIVE:
+            return new GmAliveMsg();
+        case PING:
+            return new PingMsg(reader.readInt(), this.readUpdates(reader));
+        case PING_REQ:
+            return new PingReqMsg(reader.readInt(),
+                    this.readActor(reader),
+                    this.readUpdates(reader));
+        case ACK:
+            return new AckMsg(reader.readInt(), this.readUpdates(reader));
+        case SUSPICION:
+            return new SuspicionMsg(this.readUpdates(reader));
+        default:
+            throw new NotSerializableException("unknown manifest " +
+                    manifest);
+        }
+    }
+
+    private void writeActor(BinaryWriter writer, ActorRef actor) {
+        if (actor == null) {
+            writer.writeString("");
+            return;
+        }
+        writer.writeString(Serialization.serializedActorPath(actor));
+    }
+
+    private ActorRef readActor(BinaryReader reader) {
+        String path = reader.readString();
+        if (path.isEmpty())
+            return null;
+        return this.system.provider().resolveActorRef(path);
+    }
+
+    private void writeActors(BinaryWriter writer,
+            Collection<ActorRef> actors) {
+        writer.writeVarint(actors.size());
+        for (ActorRef actor : actors)
+            this.writeActor(writer, actor);
+    }
+
+    private List<ActorRef> readActors(BinaryReader reader) {
+        int count = reader.readVarint();
+        List<ActorRef> actors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            actors.add(this.readActor(reader));
+        return actors;
+    }
+
+    private void writeUpdates(BinaryWriter writer,
+            Collection<SwimUpdate> updates) {
+        writer.writeVarint(updates.size());
+        for (SwimUpdate update : updates) {
+            this.writeActor(writer, update.member);
+            writer.writeInt(update.incarnation);
+            writer.writeBoolean(update.suspect);
+        }
+    }
+
+    private List<SwimUpdate> readUpdates(BinaryReader reader) {
+        int count = reader.readVarint();
+        List<SwimUpdate> updates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            updates.add(new SwimUpdate(this.readActor(reader),
+                    reader.readInt(),
+                    reader.readBoolean()));
+        return updates;
+    }
+
+    private void writeIds(BinaryWriter writer, Collection<Integer> ids) {
+        writer.writeVarint(ids.size());
+        for (Integer id : ids)
+            writer.writeInt(id);
+    }
+
+    private List<Integer> readIds(BinaryReader reader) {
+        int count = reader.readVarint();
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            ids.add(reader.readInt());
+        return ids;
+    }
+}
@@ -0,0 +1,55 @@
+package reliable_multicast.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+
+/**
+ * Simulated network delay for the copies of a multicast.
+ *
+ * Delays are expressed in microseconds. The model is asked for the
+ * delay of each copy of a fan-out, index being the position of the
+ * receiver in the fan-out.
+ *
+ * Models are not required to keep FIFO order among copies sent on the
+ * same link, this is guaranteed by the sender.
+ */
+public interface DelayModel {
+
+    String CONFIG_PATH = "participant.delay";
+
+    long delay(ActorRef sender, ActorRef receiver, int index);
+
+    /**
+     * Build the model defined in the participant.delay section of a
+     * node config.
+     *
+     * @param config
+     * @return
+     * @throws IllegalArgumentException if the model is unknown
+     */
+    static DelayModel fromConfig(Config config) {
+        Config delay = config.getConfig(CONFIG_PATH);
+        String model = delay.getString("model");
+        switch (model) {
+        case "zero":
+            return new ZeroDelay();
+        case "fixed":
+            return new FixedDelay(
+                    delay.getDuration("fixed", TimeUnit.MICROSECONDS));
+        case "jitter":
+            return new JitterDelay(
+                    delay.getDuration("fixed", TimeUnit.MICROSECONDS),
+                    delay.getDuration("jitter", TimeUnit.MICROSECONDS),
+                    delay.getLong("seed"));
+        case "staggered":
+            return new StaggeredDelay(
+                    delay.getDuration("step", TimeUnit.MICROSECONDS));
+        default:
+            throw new IllegalArgumentException("unknown delay model: " +
+                    model);
+        }
+    }
+}
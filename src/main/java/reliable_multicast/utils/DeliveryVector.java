@@ -0,0 +1,64 @@
+package reliable_multicast.utils;
+
+import java.util.Arrays;
+
+/**
+ * Id of the last message delivered from each process.
+ *
+ * Process ids are small non-negative integers assigned by the group
+ * manager, so the ids delivered are stored in an int array indexed by
+ * process id, growing when a larger id shows up. Reads and updates do
+ * not allocate.
+ */
+public class DeliveryVector {
+
+    // returned for processes with no entry
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] delivered;
+
+    public DeliveryVector() {
+        super();
+        this.delivered = new int[INITIAL_CAPACITY];
+        Arrays.fill(this.delivered, NONE);
+    }
+
+    /**
+     * @return the id of the last message delivered from the
+     *         process, NONE if the process has no entry.
+     */
+    public int get(int processId) {
+        if (processId < 0 || processId >= this.delivered.length)
+            return NONE;
+        return this.delivered[processId];
+    }
+
+    public boolean contains(int processId) {
+        return this.get(processId) != NONE;
+    }
+
+    public void set(int processId, int messageId) {
+        if (processId < 0)
+            throw new IllegalArgumentException(
+                    "negative process id " + processId);
+        if (processId >= this.delivered.length) {
+            int capacity = this.delivered.length;
+            while (capacity <= processId)
+                capacity <<= 1;
+            int oldCapacity = this.delivered.length;
+            this.delivered = Arrays.copyOf(this.delivered, capacity);
+            Arrays.fill(this.delivered, oldCapacity, capacity, NONE);
+        }
+        this.delivered[processId] = messageId;
+    }
+
+    /**
+     * @return true if messageId follows the last message delivered
+     *         from the process (or none has been delivered yet).
+     */
+    public boolean isNew(int processId, int messageId) {
+        return this.get(processId) < messageId;
+    }
+}
@@ -0,0 +1,106 @@
+package reliable_multicast.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.Config;
+
+/**
+ * Parameters of the failure detectors, taken from the
+ * participant.failure_detector section of a node config.
+ *
+ * In the central mode the group manager and the participants exchange
+ * heartbeats fed to phi accrual detectors. In the swim mode every node
+ * probes a random member per heartbeat interval (see SwimMembership).
+ */
+public class DetectorSettings {
+
+    public static final String CONFIG_PATH = "participant.failure_detector";
+
+    public final double threshold;
+    public final int maxSampleSize;
+    public final long minStdDeviation;
+    public final long acceptablePause;
+    // time (ms) between two heartbeats, or two probes
+    // in the swim mode
+    public final long heartbeatInterval;
+    // protocol messages count as heartbeats, explicit ones
+    // are sent only to silent nodes (see LivenessTracker)
+    public final boolean implicitHeartbeats;
+
+    // --- swim mode ---
+    public final boolean swim;
+    // time (ms) given to a probed member to answer before
+    // other members are asked to probe it
+    public final long probeTimeout;
+    // members asked to probe a member not answering
+    public final int indirectProbes;
+    // time (ms) given to a suspected member to refute
+    public final long suspicionTimeout;
+    // max number of membership updates carried by a message
+    public final int maxPiggyback;
+
+    public DetectorSettings(double threshold,
+            int maxSampleSize,
+            long minStdDeviation,
+            long acceptablePause,
+            long heartbeatInterval,
+            boolean implicitHeartbeats,
+            boolean swim,
+            long probeTimeout,
+            int indirectProbes,
+            long suspicionTimeout,
+            int maxPiggyback) {
+        this.threshold = threshold;
+        this.maxSampleSize = maxSampleSize;
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        this.heartbeatInterval = heartbeatInterval;
+        this.implicitHeartbeats = implicitHeartbeats;
+        this.swim = swim;
+        this.probeTimeout = probeTimeout;
+        this.indirectProbes = indirectProbes;
+        this.suspicionTimeout = suspicionTimeout;
+        this.maxPiggyback = maxPiggyback;
+    }
+
+    public static DetectorSettings fromConfig(Config config) {
+        Config detector = config.getConfig(CONFIG_PATH);
+        String mode = detector.getString("mode");
+        if (!mode.equals("central") && !mode.equals("swim"))
+            throw new IllegalArgumentException(
+                    "unknown failure detector mode: " + mode);
+        Config swim = detector.getConfig("swim");
+        return new DetectorSettings(
+                detector.getDouble("threshold"),
+                detector.getInt("max_sample_size"),
+                detector.getDuration("min_std_deviation",
+                        TimeUnit.MILLISECONDS),
+                detector.getDuration("acceptable_pause",
+                        TimeUnit.MILLISECONDS),
+                detector.getDuration("heartbeat_interval",
+                        TimeUnit.MILLISECONDS),
+                detector.getBoolean("implicit_heartbeats"),
+                mode.equals("swim"),
+                swim.getDuration("probe_timeout", TimeUnit.MILLISECONDS),
+                swim.getInt("indirect_probes"),
+                swim.getDuration("suspicion_timeout",
+                        TimeUnit.MILLISECONDS),
+                swim.getInt("max_piggyback"));
+    }
+
+    /**
+     * A detector for a node just seen alive.
+     *
+     * @param now time (ms) of the first heartbeat
+     * @return
+     */
+    public PhiAccrualDetector newDetector(long now) {
+        PhiAccrualDetector detector = new PhiAccrualDetector(threshold,
+                maxSampleSize,
+                minStdDeviation,
+                acceptablePause,
+                heartbeatInterval);
+        detector.heartbeat(now);
+        return detector;
+    }
+}
@@ -0,0 +1,20 @@
+package reliable_multicast.utils;
+
+import akka.actor.ActorRef;
+
+/**
+ * Every copy is delayed by the same amount of time.
+ */
+public class FixedDelay implements DelayModel {
+
+    private final long delay;
+
+    public FixedDelay(long delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public long delay(ActorRef sender, ActorRef receiver, int index) {
+        return delay;
+    }
+}
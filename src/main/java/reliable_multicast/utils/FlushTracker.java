@@ -0,0 +1,115 @@
+package reliable_multicast.utils;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import akka.actor.ActorRef;
+
+/**
+ * Flushes received by a node during view changes.
+ *
+ * Flushes of the view being installed are counted as they arrive:
+ * each member of the view has an index and a bit telling whether its
+ * flush has been received, so knowing whether all the members have
+ * flushed takes constant time.
+ *
+ * A flush may be received before the view change it belongs to. These
+ * flushes are kept apart and counted once the view begins. Flushes of
+ * older views are discarded all together when a view begins.
+ */
+public class FlushTracker {
+
+    // id of the view whose flushes are counted
+    private int viewId;
+    // index of each member of the view
+    private Map<ActorRef, Integer> indexes;
+    private BitSet received;
+    private int count;
+    // senders of the flushes of views not begun yet
+    private final TreeMap<Integer, Set<ActorRef>> future;
+
+    public FlushTracker() {
+        super();
+        this.viewId = Integer.MIN_VALUE;
+        this.indexes = new HashMap<>();
+        this.received = new BitSet();
+        this.count = 0;
+        this.future = new TreeMap<>();
+    }
+
+    public int viewId() {
+        return this.viewId;
+    }
+
+    /**
+     * Start counting the flushes of the given view. Flushes of
+     * previous views are discarded.
+     */
+    public void beginView(int viewId, Collection<ActorRef> members) {
+        if (viewId <= this.viewId)
+            return;
+        this.viewId = viewId;
+        this.indexes = new HashMap<>(members.size() * 2);
+        for (ActorRef member : members)
+            this.indexes.put(member, this.indexes.size());
+        this.received = new BitSet(members.size());
+        this.count = 0;
+        this.future.headMap(viewId).clear();
+        Set<ActorRef> early = this.future.remove(viewId);
+        if (early != null) {
+            for (ActorRef sender : early)
+                this.add(viewId, sender);
+        }
+    }
+
+    /**
+     * Record a flush.
+     *
+     * @return true if the flush counts for the view currently
+     *         tracked and had not been received yet.
+     */
+    public boolean add(int viewId, ActorRef sender) {
+        if (viewId < this.viewId)
+            return false;
+        if (viewId > this.viewId) {
+            Set<ActorRef> senders = this.future.get(viewId);
+            if (senders == null) {
+                senders = new HashSet<>();
+                this.future.put(viewId, senders);
+            }
+            senders.add(sender);
+            return false;
+        }
+        Integer index = this.indexes.get(sender);
+        if (index == null || this.received.get(index))
+            return false;
+        this.received.set(index);
+        this.count++;
+        return true;
+    }
+
+    /**
+     * @return true if every member of the view currently tracked
+     *         has sent its flush.
+     */
+    public boolean isComplete() {
+        return this.count == this.indexes.size();
+    }
+
+    public boolean isComplete(int viewId) {
+        return viewId == this.viewId && this.isComplete();
+    }
+
+    /**
+     * @return number of members of the tracked view that have
+     *         sent their flush.
+     */
+    public int received() {
+        return this.count;
+    }
+}
@@ -0,0 +1,50 @@
+package reliable_multicast.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import akka.actor.ActorRef;
+
+/**
+ * A fixed delay plus a random jitter drawn uniformly in [0, jitter).
+ *
+ * Each link (sender, receiver) has its own random generator, seeded
+ * from the given seed and the paths of the link ends. A link sees the
+ * same sequence of delays in each run, no matter how sends over
+ * different links interleave.
+ */
+public class JitterDelay implements DelayModel {
+
+    private final long fixed;
+    private final long jitter;
+    private final long seed;
+    private final Map<ActorRef, Random> links;
+
+    public JitterDelay(long fixed, long jitter, long seed) {
+        this.fixed = fixed;
+        this.jitter = jitter;
+        this.seed = seed;
+        this.links = new HashMap<>();
+    }
+
+    private Random link(ActorRef sender, ActorRef receiver) {
+        Random random = links.get(receiver);
+        if (random == null) {
+            long linkSeed = seed;
+            linkSeed = 31 * linkSeed + sender.path().toString().hashCode();
+            linkSeed = 31 * linkSeed + receiver.path().toString().hashCode();
+            random = new Random(linkSeed);
+            links.put(receiver, random);
+        }
+        return random;
+    }
+
+    @Override
+    public long delay(ActorRef sender, ActorRef receiver, int index) {
+        if (jitter <= 0)
+            return fixed;
+        return fixed + (long) (link(sender, receiver).nextDouble() *
+                jitter);
+    }
+}
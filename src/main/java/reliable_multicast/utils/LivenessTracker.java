@@ -0,0 +1,123 @@
+package reliable_multicast.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import akka.actor.ActorRef;
+
+/**
+ * Liveness of the nodes monitored by a node in the central failure
+ * detection mode.
+ *
+ * Any protocol message received from a node proves it alive, so
+ * with implicit heartbeats its arrival is recorded as a heartbeat
+ * would. An explicit heartbeat is needed only for the nodes silent
+ * for more than a heartbeat interval.
+ *
+ * Arrivals are fed to the phi accrual detector of the node once per
+ * check, the last one only: under load the detector keeps seeing
+ * inter-arrival times close to the heartbeat interval, not the time
+ * between two multicasts, which would make any pause after the load
+ * look like a crash.
+ *
+ * Times are given in milliseconds by the caller.
+ */
+public class LivenessTracker {
+
+    private static class Node {
+        final PhiAccrualDetector detector;
+        // last message received from the node
+        long lastHeard;
+        // last arrival fed to the detector
+        long fed;
+
+        Node(PhiAccrualDetector detector, long now) {
+            this.detector = detector;
+            this.lastHeard = now;
+            this.fed = now;
+        }
+    }
+
+    private final DetectorSettings settings;
+    private final Map<ActorRef, Node> nodes;
+
+    public LivenessTracker(DetectorSettings settings) {
+        this.settings = settings;
+        this.nodes = new HashMap<>();
+    }
+
+    /**
+     * Start monitoring a node just seen alive. A node already
+     * monitored starts over.
+     */
+    public void monitor(ActorRef node, long now) {
+        this.nodes.put(node, new Node(this.settings.newDetector(now), now));
+    }
+
+    public void forget(ActorRef node) {
+        this.nodes.remove(node);
+    }
+
+    public void clear() {
+        this.nodes.clear();
+    }
+
+    public int size() {
+        return this.nodes.size();
+    }
+
+    public boolean isMonitored(ActorRef node) {
+        return this.nodes.containsKey(node);
+    }
+
+    /**
+     * An explicit heartbeat from the node.
+     */
+    public void heartbeat(ActorRef node, long now) {
+        Node monitored = this.nodes.get(node);
+        if (monitored != null && now > monitored.lastHeard)
+            monitored.lastHeard = now;
+    }
+
+    /**
+     * Any other message from the node, ignored if implicit
+     * heartbeats are off.
+     */
+    public void heard(ActorRef node, long now) {
+        if (this.settings.implicitHeartbeats)
+            this.heartbeat(node, now);
+    }
+
+    /**
+     * Feed the last arrival to the detector of the node, then
+     * check its suspicion level. Meant to be called once per
+     * heartbeat interval.
+     *
+     * @return false if the node is suspected, true if it's alive
+     *         or not monitored
+     */
+    public boolean isAvailable(ActorRef node, long now) {
+        Node monitored = this.nodes.get(node);
+        if (monitored == null)
+            return true;
+        if (monitored.lastHeard > monitored.fed) {
+            monitored.detector.heartbeat(monitored.lastHeard);
+            monitored.fed = monitored.lastHeard;
+        }
+        return monitored.detector.isAvailable(now);
+    }
+
+    /**
+     * @return true if the node must be sent an explicit heartbeat,
+     *         i.e. always without implicit heartbeats, otherwise if
+     *         nothing has been heard from the node for a heartbeat
+     *         interval
+     */
+    public boolean isSilent(ActorRef node, long now) {
+        if (!this.settings.implicitHeartbeats)
+            return true;
+        Node monitored = this.nodes.get(node);
+        return monitored == null ||
+                now - monitored.lastHeard >= this.settings.heartbeatInterval;
+    }
+}
@@ -0,0 +1,112 @@
+package reliable_multicast.utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import akka.actor.ActorRef;
+
+/**
+ * Bijective association between process ids and actors, namely
+ * among aliveProcesses and crashedProcesses.
+ *
+ * Both directions are indexed, so lookups by id and by actor take
+ * constant time. The version changes on every update, so snapshots
+ * of the registry can be cached until the next one.
+ */
+public class MembershipRegistry {
+    private final Map<Integer, ActorRef> actorsById;
+    private final Map<ActorRef, Integer> idsByActor;
+    private long version;
+    // snapshot of the actors, valid while snapshotVersion == version
+    private Set<ActorRef> actorsSnapshot;
+    private long snapshotVersion;
+
+    public MembershipRegistry() {
+        super();
+        this.actorsById = new HashMap<>();
+        this.idsByActor = new HashMap<>();
+        this.version = 0;
+        this.actorsSnapshot = Collections.emptySet();
+        this.snapshotVersion = 0;
+    }
+
+    /**
+     * @return a number changing on every update of the registry
+     */
+    public long version() {
+        return this.version;
+    }
+
+    public int size() {
+        return this.actorsById.size();
+    }
+
+    public Set<Integer> getProcessesIds() {
+        return Collections.unmodifiableSet(this.actorsById.keySet());
+    }
+
+    public Set<ActorRef> getProcessesActors() {
+        if (this.snapshotVersion != this.version) {
+            this.actorsSnapshot = Collections.unmodifiableSet(
+                    new HashSet<>(this.idsByActor.keySet()));
+            this.snapshotVersion = this.version;
+        }
+        return this.actorsSnapshot;
+    }
+
+    /**
+     * An element can be added iif it's unique both to the keys set and
+     * to the values set.
+     *
+     * The association must be bijective.
+     *
+     * @param id
+     * @param actor
+     * @return true if the association has been added
+     */
+    public boolean addIdRefAssoc(Integer id, ActorRef actor) {
+        if (this.actorsById.containsKey(id))
+            return false;
+        if (this.idsByActor.containsKey(actor))
+            return false;
+        this.actorsById.put(id, actor);
+        this.idsByActor.put(actor, id);
+        this.version++;
+        return true;
+    }
+
+    public ActorRef getActorById(Integer id) {
+        return this.actorsById.get(id);
+    }
+
+    public Integer getIdByActor(ActorRef actor) {
+        return this.idsByActor.get(actor);
+    }
+
+    /**
+     * @return the ids of the given actors, actors not in the
+     *         registry are skipped.
+     */
+    public Set<Integer> getIdsByActors(Collection<ActorRef> actors) {
+        Set<Integer> ids = new HashSet<>();
+        Integer id;
+        for (ActorRef actor : actors) {
+            id = this.idsByActor.get(actor);
+            if (id != null)
+                ids.add(id);
+        }
+        return ids;
+    }
+
+    public void removeIdRefEntry(Integer id) {
+        ActorRef actor = this.actorsById.remove(id);
+        if (actor == null)
+            return;
+        this.idsByActor.remove(actor);
+        this.version++;
+    }
+}
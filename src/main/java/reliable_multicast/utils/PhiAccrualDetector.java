@@ -0,0 +1,116 @@
+package reliable_multicast.utils;
+
+/**
+ * Phi accrual failure detector for a single monitored node (as in
+ * Hayashibara et al., "The phi accrual failure detector").
+ *
+ * Instead of a binary alive/crashed answer, the detector returns a
+ * suspicion level phi computed from the distribution of the last
+ * heartbeat inter-arrival times. phi = k roughly means a 10^-k
+ * probability of being wrong when suspecting the node, so the
+ * threshold adapts to the observed network behavior.
+ *
+ * Times are given in milliseconds by the caller.
+ */
+public class PhiAccrualDetector {
+
+    private final double threshold;
+    private final long minStdDeviation;
+    private final long acceptablePause;
+
+    // circular window of inter-arrival times
+    private final long[] intervals;
+    private int count;
+    private int next;
+    private double sum;
+    private double squaredSum;
+
+    private long lastHeartbeat;
+
+    /**
+     * @param threshold phi above which the node is suspected
+     * @param maxSampleSize inter-arrival times kept
+     * @param minStdDeviation lower bound of the std deviation, avoids
+     *        suspecting on tiny variations of a too regular history
+     * @param acceptablePause extra time (ms) tolerated over the mean
+     *        inter-arrival time
+     * @param firstHeartbeatEstimate expected inter-arrival time (ms)
+     *        used to bootstrap the history
+     */
+    public PhiAccrualDetector(double threshold,
+            int maxSampleSize,
+            long minStdDeviation,
+            long acceptablePause,
+            long firstHeartbeatEstimate) {
+        this.threshold = threshold;
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        this.intervals = new long[Math.max(maxSampleSize, 2)];
+        this.count = 0;
+        this.next = 0;
+        this.sum = 0;
+        this.squaredSum = 0;
+        this.lastHeartbeat = -1;
+        // bootstrap with a std deviation of 1/4 of the estimate
+        long stdDeviation = firstHeartbeatEstimate / 4;
+        this.addInterval(firstHeartbeatEstimate - stdDeviation);
+        this.addInterval(firstHeartbeatEstimate + stdDeviation);
+    }
+
+    private void addInterval(long interval) {
+        if (count == intervals.length) {
+            long oldest = intervals[next];
+            sum -= oldest;
+            squaredSum -= (double) oldest * oldest;
+        } else {
+            count += 1;
+        }
+        intervals[next] = interval;
+        next = (next + 1) % intervals.length;
+        sum += interval;
+        squaredSum += (double) interval * interval;
+    }
+
+    public void heartbeat(long now) {
+        if (lastHeartbeat >= 0 && now >= lastHeartbeat)
+            this.addInterval(now - lastHeartbeat);
+        lastHeartbeat = now;
+    }
+
+    public double mean() {
+        return sum / count;
+    }
+
+    public double stdDeviation() {
+        double mean = this.mean();
+        double variance = squaredSum / count - mean * mean;
+        return Math.sqrt(Math.max(variance, 0));
+    }
+
+    /**
+     * The suspicion level of the node at the given time.
+     *
+     * Uses the logistic approximation of the normal cumulative
+     * distribution, which is cheap and doesn't overflow.
+     *
+     * @param now
+     * @return
+     */
+    public double phi(long now) {
+        if (lastHeartbeat < 0)
+            return 0.0;
+        double elapsed = now - lastHeartbeat;
+        double mean = this.mean() + acceptablePause;
+        double stdDeviation = Math.max(this.stdDeviation(),
+                minStdDeviation);
+        double y = (elapsed - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        if (elapsed > mean)
+            return -Math.log10(e / (1.0 + e));
+        return -Math.log10(1.0 - 1.0 / (1.0 + e));
+    }
+
+    public boolean isAvailable(long now) {
+        return this.phi(now) < threshold;
+    }
+}
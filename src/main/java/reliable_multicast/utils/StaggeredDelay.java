@@ -0,0 +1,22 @@
+package reliable_multicast.utils;
+
+import akka.actor.ActorRef;
+
+/**
+ * Each copy is sent one step after the previous one, so a fan-out to
+ * N receivers takes N steps. With a 1 second step this is the
+ * original behavior of the system.
+ */
+public class StaggeredDelay implements DelayModel {
+
+    private final long step;
+
+    public StaggeredDelay(long step) {
+        this.step = step;
+    }
+
+    @Override
+    public long delay(ActorRef sender, ActorRef receiver, int index) {
+        return index * step;
+    }
+}
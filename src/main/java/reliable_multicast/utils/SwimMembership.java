@@ -0,0 +1,246 @@
+package reliable_multicast.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import akka.actor.ActorRef;
+import reliable_multicast.messages.SwimUpdate;
+
+/**
+ * Membership of a node taking part in the SWIM failure detection.
+ *
+ * The node probes one member per round. Members are probed in a
+ * random order, reshuffled once all of them have been probed, so two
+ * probes of a member are at most 2N - 1 rounds apart with N members.
+ *
+ * Changes of the state of the members (suspicions and refutations)
+ * are gossiped piggybacked on probes and acks. Each change is sent a
+ * number of times growing with the logarithm of the group size,
+ * which is enough to reach every member with high probability.
+ *
+ * A suspected member refutes the suspicion by gossiping that it is
+ * alive with a higher incarnation.
+ */
+public class SwimMembership {
+
+    // times each update is gossiped, per bit of the group size
+    private static final int TRANSMISSIONS_PER_BIT = 3;
+
+    private static class State {
+        int incarnation;
+        boolean suspect;
+        // time (ms) at which the member has been suspected
+        long suspectedAt;
+    }
+
+    private final ActorRef self;
+    private final Random random;
+    private int incarnation;
+    private final Map<ActorRef, State> members;
+    // members still to be probed in this pass
+    private final List<ActorRef> probeOrder;
+    // updates to gossip, by member, with the number of
+    // transmissions left
+    private final LinkedHashMap<ActorRef, SwimUpdate> updates;
+    private final Map<ActorRef, Integer> transmissions;
+
+    public SwimMembership(ActorRef self, Random random) {
+        this.self = self;
+        this.random = random;
+        this.incarnation = 0;
+        this.members = new HashMap<>();
+        this.probeOrder = new ArrayList<>();
+        this.updates = new LinkedHashMap<>();
+        this.transmissions = new HashMap<>();
+    }
+
+    public int incarnation() {
+        return this.incarnation;
+    }
+
+    public int size() {
+        return this.members.size();
+    }
+
+    public boolean isSuspected(ActorRef member) {
+        State state = this.members.get(member);
+        return state != null && state.suspect;
+    }
+
+    /**
+     * Set the members of the group (self excluded if given). The
+     * state of the members already known is kept.
+     */
+    public void setMembers(Collection<ActorRef> members) {
+        this.members.keySet().retainAll(members);
+        for (ActorRef member : members) {
+            if (!member.equals(this.self))
+                this.members.computeIfAbsent(member, m -> new State());
+        }
+        this.probeOrder.retainAll(this.members.keySet());
+        Iterator<ActorRef> gossiped = this.updates.keySet().iterator();
+        while (gossiped.hasNext()) {
+            ActorRef member = gossiped.next();
+            if (!member.equals(this.self) &&
+                    !this.members.containsKey(member)) {
+                gossiped.remove();
+                this.transmissions.remove(member);
+            }
+        }
+    }
+
+    /**
+     * Forget members and updates, e.g. when the node crashes. The
+     * incarnation is kept, so the node can still refute suspicions
+     * about its previous life.
+     */
+    public void clear() {
+        this.members.clear();
+        this.probeOrder.clear();
+        this.updates.clear();
+        this.transmissions.clear();
+    }
+
+    /**
+     * @return the member to probe in this round, null if there is
+     *         no other member
+     */
+    public ActorRef nextTarget() {
+        if (this.probeOrder.isEmpty()) {
+            this.probeOrder.addAll(this.members.keySet());
+            Collections.shuffle(this.probeOrder, this.random);
+        }
+        if (this.probeOrder.isEmpty())
+            return null;
+        return this.probeOrder.remove(this.probeOrder.size() - 1);
+    }
+
+    /**
+     * @return up to count random members, other than the one given
+     */
+    public List<ActorRef> randomMembers(int count, ActorRef excluded) {
+        List<ActorRef> candidates = new ArrayList<>(this.members.keySet());
+        candidates.remove(excluded);
+        Collections.shuffle(candidates, this.random);
+        return candidates.subList(0, Math.min(count, candidates.size()));
+    }
+
+    private void gossip(SwimUpdate update) {
+        int bits = 32 - Integer.numberOfLeadingZeros(this.members.size() + 1);
+        this.updates.remove(update.member);
+        this.updates.put(update.member, update);
+        this.transmissions.put(update.member, TRANSMISSIONS_PER_BIT * bits);
+    }
+
+    /**
+     * @return up to max updates to piggyback on a message
+     */
+    public List<SwimUpdate> piggyback(int max) {
+        if (this.updates.isEmpty())
+            return Collections.emptyList();
+        List<SwimUpdate> sent = new ArrayList<>(
+                Math.min(max, this.updates.size()));
+        Iterator<SwimUpdate> pending = this.updates.values().iterator();
+        while (sent.size() < max && pending.hasNext()) {
+            SwimUpdate update = pending.next();
+            sent.add(update);
+            int left = this.transmissions.get(update.member) - 1;
+            if (left > 0) {
+                this.transmissions.put(update.member, left);
+            } else {
+                pending.remove();
+                this.transmissions.remove(update.member);
+            }
+        }
+        // updates sent less often go first next time
+        for (SwimUpdate update : sent) {
+            if (this.updates.remove(update.member) != null)
+                this.updates.put(update.member, update);
+        }
+        return sent;
+    }
+
+    /**
+     * Suspect a member which did not answer to a probe.
+     *
+     * @param now time (ms)
+     * @return the suspicion to report, null if the member is unknown
+     *         or already suspected
+     */
+    public SwimUpdate suspect(ActorRef member, long now) {
+        State state = this.members.get(member);
+        if (state == null || state.suspect)
+            return null;
+        SwimUpdate update = new SwimUpdate(member, state.incarnation, true);
+        this.set(state, update, now);
+        return update;
+    }
+
+    private void set(State state, SwimUpdate update, long now) {
+        if (update.suspect && !state.suspect)
+            state.suspectedAt = now;
+        state.incarnation = update.incarnation;
+        state.suspect = update.suspect;
+        this.gossip(update);
+    }
+
+    /**
+     * Apply an update received from another node.
+     *
+     * @param now time (ms)
+     * @return the update if it changed the known state, the update
+     *         refuting it if it's a suspicion of this node, null
+     *         otherwise
+     */
+    public SwimUpdate apply(SwimUpdate update, long now) {
+        if (update.member.equals(this.self)) {
+            if (!update.suspect || update.incarnation < this.incarnation)
+                return null;
+            this.incarnation = update.incarnation + 1;
+            SwimUpdate refutation = new SwimUpdate(this.self,
+                    this.incarnation, false);
+            this.gossip(refutation);
+            return refutation;
+        }
+        State state = this.members.get(update.member);
+        if (state == null ||
+                !update.overrides(state.incarnation, state.suspect))
+            return null;
+        this.set(state, update, now);
+        return update;
+    }
+
+    /**
+     * @param now time (ms)
+     * @param timeout time (ms) given to a suspected member to refute
+     * @return true if the member has been suspected for longer than
+     *         timeout
+     */
+    public boolean isExpired(ActorRef member, long now, long timeout) {
+        State state = this.members.get(member);
+        return state != null && state.suspect &&
+                now - state.suspectedAt >= timeout;
+    }
+
+    /**
+     * @param now time (ms)
+     * @param timeout time (ms) given to a suspected member to refute
+     * @return the members suspected for longer than timeout
+     */
+    public List<ActorRef> expired(long now, long timeout) {
+        List<ActorRef> expired = new ArrayList<>();
+        for (Map.Entry<ActorRef, State> member : this.members.entrySet()) {
+            State state = member.getValue();
+            if (state.suspect && now - state.suspectedAt >= timeout)
+                expired.add(member.getKey());
+        }
+        return expired;
+    }
+}
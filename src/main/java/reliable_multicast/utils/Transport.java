@@ -0,0 +1,92 @@
+package reliable_multicast.utils;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+/**
+ * Remoting transport used by the ActorSystem of a node.
+ *
+ * The classic transport (netty over TCP) is the default. The node
+ * config files also define the canonical address of Artery, which is
+ * enabled by overlaying the config returned by config() on them.
+ */
+public enum Transport {
+    CLASSIC("classic", "akka.tcp"),
+    ARTERY_TCP("artery-tcp", "akka"),
+    ARTERY_UDP("aeron-udp", "akka");
+
+    private final String name;
+    private final String protocol;
+
+    private Transport(String name, String protocol) {
+        this.name = name;
+        this.protocol = protocol;
+    }
+
+    /**
+     * @param name one among classic, artery-tcp, aeron-udp. An empty
+     *        name stands for the classic transport.
+     * @return
+     * @throws IllegalArgumentException if the transport is unknown
+     */
+    public static Transport fromName(String name) {
+        if (name == null || name.trim().isEmpty())
+            return CLASSIC;
+        for (Transport transport : values()) {
+            if (transport.name.equals(name.trim()))
+                return transport;
+        }
+        throw new IllegalArgumentException("unknown transport: " + name);
+    }
+
+    /**
+     * @return the protocol of the actor paths of remote nodes, e.g.
+     *         akka.tcp://system@host:port/user/gm
+     */
+    public String protocol() {
+        return protocol;
+    }
+
+    /**
+     * @return the settings enabling this transport, to be used on top
+     *         of a node config already defining its addresses.
+     */
+    public Config config() {
+        switch (this) {
+        case ARTERY_TCP:
+            return ConfigFactory.parseString(
+                    "akka.remote.artery.enabled = on\n" +
+                    "akka.remote.artery.transport = tcp\n");
+        case ARTERY_UDP:
+            return ConfigFactory.parseString(
+                    "akka.remote.artery.enabled = on\n" +
+                    "akka.remote.artery.transport = aeron-udp\n");
+        default:
+            return ConfigFactory.parseString(
+                    "akka.remote.artery.enabled = off\n" +
+                    "akka.remote.enabled-transports = " +
+                    "[\"akka.remote.netty.tcp\"]\n");
+        }
+    }
+
+    /**
+     * @return the settings enabling this transport bound to the given
+     *         address. A port 0 lets the system pick a free one.
+     */
+    public Config config(String hostname, int port) {
+        String address;
+        if (this == CLASSIC)
+            address = "akka.remote.netty.tcp";
+        else
+            address = "akka.remote.artery.canonical";
+        return ConfigFactory.parseString(
+                address + ".hostname = \"" + hostname + "\"\n" +
+                address + ".port = " + port + "\n")
+                .withFallback(config());
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
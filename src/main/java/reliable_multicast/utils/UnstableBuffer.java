@@ -0,0 +1,241 @@
+package reliable_multicast.utils;
+
+import java.util.AbstractCollection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import reliable_multicast.messages.Message;
+
+/**
+ * Buffer of the unstable messages received by a node.
+ *
+ * Messages are kept in a ring per sender, indexed by messageID, so
+ * insertion, lookup and removal (one message or all the messages up
+ * to a given id) take constant time. Iterating returns the messages
+ * of each sender in messageID order.
+ *
+ * A ring spans the ids between the oldest and the newest message of
+ * its sender still in the buffer, which is bounded by the window of
+ * messages in flight of the sender. It grows if more are stored.
+ */
+public class UnstableBuffer extends AbstractCollection<Message> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static class Ring {
+        Message[] slots;
+        int mask;
+        // ids in [first, end) may be stored. No message
+        // is stored when first == end.
+        int first;
+        int end;
+        int count;
+
+        Ring(int capacity) {
+            this.slots = new Message[capacity];
+            this.mask = capacity - 1;
+        }
+
+        Message get(int messageID) {
+            if (messageID < first || messageID >= end)
+                return null;
+            return slots[messageID & mask];
+        }
+
+        void grow(int span) {
+            int capacity = slots.length;
+            while (capacity < span)
+                capacity <<= 1;
+            Message[] old = slots;
+            slots = new Message[capacity];
+            mask = capacity - 1;
+            for (Message message : old) {
+                if (message != null)
+                    slots[message.messageID & mask] = message;
+            }
+        }
+
+        boolean add(Message message) {
+            int messageID = message.messageID;
+            if (count == 0) {
+                first = messageID;
+                end = messageID + 1;
+            } else {
+                if (get(messageID) != null)
+                    return false;
+                int newFirst = Math.min(first, messageID);
+                int newEnd = Math.max(end, messageID + 1);
+                if (newEnd - newFirst > slots.length)
+                    grow(newEnd - newFirst);
+                first = newFirst;
+                end = newEnd;
+            }
+            slots[messageID & mask] = message;
+            count++;
+            return true;
+        }
+
+        boolean remove(int messageID) {
+            if (get(messageID) == null)
+                return false;
+            slots[messageID & mask] = null;
+            count--;
+            if (count == 0)
+                first = end;
+            else if (messageID == first)
+                while (slots[first & mask] == null)
+                    first++;
+            return true;
+        }
+
+        /**
+         * @return the number of messages removed
+         */
+        int removeUpTo(int messageID) {
+            int removed = 0;
+            int last = Math.min(messageID, end - 1);
+            for (int i = first; i <= last; i++) {
+                if (slots[i & mask] != null) {
+                    slots[i & mask] = null;
+                    removed++;
+                }
+            }
+            count -= removed;
+            if (count == 0)
+                first = end;
+            else if (removed > 0)
+                while (slots[first & mask] == null)
+                    first++;
+            return removed;
+        }
+    }
+
+    private final Map<Integer, Ring> rings;
+    private int size;
+
+    public UnstableBuffer() {
+        super();
+        this.rings = new HashMap<>();
+        this.size = 0;
+    }
+
+    @Override
+    public boolean add(Message message) {
+        Ring ring = this.rings.get(message.senderID);
+        if (ring == null) {
+            ring = new Ring(INITIAL_CAPACITY);
+            this.rings.put(message.senderID, ring);
+        }
+        if (!ring.add(message))
+            return false;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * @return the buffered message sent by senderID with the
+     *         given messageID, null if there is none.
+     */
+    public Message get(int senderID, int messageID) {
+        Ring ring = this.rings.get(senderID);
+        if (ring == null)
+            return null;
+        return ring.get(messageID);
+    }
+
+    @Override
+    public boolean contains(Object other) {
+        if (!(other instanceof Message))
+            return false;
+        Message message = (Message) other;
+        return this.get(message.senderID, message.messageID) != null;
+    }
+
+    public boolean remove(int senderID, int messageID) {
+        Ring ring = this.rings.get(senderID);
+        if (ring == null || !ring.remove(messageID))
+            return false;
+        this.size--;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object other) {
+        if (!(other instanceof Message))
+            return false;
+        Message message = (Message) other;
+        return this.remove(message.senderID, message.messageID);
+    }
+
+    /**
+     * Remove the messages sent by senderID up to (and including)
+     * messageID.
+     */
+    public void removeUpTo(int senderID, int messageID) {
+        Ring ring = this.rings.get(senderID);
+        if (ring != null)
+            this.size -= ring.removeUpTo(messageID);
+    }
+
+    @Override
+    public void clear() {
+        this.rings.clear();
+        this.size = 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<Message> iterator() {
+        return new Iterator<Message>() {
+            private final Iterator<Ring> ringIter =
+                    rings.values().iterator();
+            private Ring ring = null;
+            private int nextId = 0;
+            private Message next = null;
+            private Message last = null;
+
+            private void advance() {
+                while (next == null) {
+                    if (ring != null && nextId < ring.end) {
+                        next = ring.get(nextId++);
+                        continue;
+                    }
+                    if (!ringIter.hasNext())
+                        return;
+                    ring = ringIter.next();
+                    nextId = ring.first;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                advance();
+                return next != null;
+            }
+
+            @Override
+            public Message next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                last = next;
+                next = null;
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null)
+                    throw new IllegalStateException();
+                UnstableBuffer.this.remove(last.senderID,
+                        last.messageID);
+                last = null;
+            }
+        };
+    }
+}
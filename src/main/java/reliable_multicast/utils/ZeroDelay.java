@@ -0,0 +1,14 @@
+package reliable_multicast.utils;
+
+import akka.actor.ActorRef;
+
+/**
+ * Copies are sent right away.
+ */
+public class ZeroDelay implements DelayModel {
+
+    @Override
+    public long delay(ActorRef sender, ActorRef receiver, int index) {
+        return 0;
+    }
+}
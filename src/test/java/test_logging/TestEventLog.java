@@ -0,0 +1,118 @@
+package test_logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import reliable_multicast.logging.EventLog;
+import reliable_multicast.logging.Level;
+import reliable_multicast.logging.LogEvent;
+
+public class TestEventLog {
+
+	private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+	private EventLog open(Level level, int capacity) {
+		return new EventLog(level, capacity, new PrintStream(bytes), null,
+				"test-log");
+	}
+
+	private String[] lines() {
+		String text = bytes.toString();
+		return text.isEmpty() ? new String[0] : text.split("\n");
+	}
+
+	@Test
+	public void testLineFormat() {
+		EventLog log = open(Level.DEBUG, 16);
+		log.log(LogEvent.CAN_SEND, 1, 1);
+		log.log(LogEvent.RECEIVED_FLUSH, 2, 3, 4);
+		log.log(LogEvent.JOIN_REQUEST, "gm", "part1");
+		log.log(LogEvent.CRASHED_SENDER, 0, 0, 5, 7);
+		log.close();
+		String[] lines = lines();
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].matches("\\d+ P-1 P-1 INFO can_send"));
+		assertTrue(lines[1].matches("\\d+ P-2 P-3 received_flush V4"));
+		assertTrue(lines[2].matches("\\d+ P-gm P-part1 INFO join_request"));
+		assertTrue(lines[3].matches("\\d+ P-0 P-0 ERROR process p5" +
+				" cannot send in step-7\\..*"));
+	}
+
+	@Test
+	public void testLevelGating() {
+		EventLog log = open(Level.INFO, 16);
+		assertFalse(log.isEnabled(Level.DEBUG));
+		log.log(LogEvent.RECEIVED_GM_ALIVE, 1, 1);
+		log.log(LogEvent.CRASHED, 1, 1);
+		log.close();
+		String[] lines = lines();
+		assertEquals(1, lines.length);
+		assertTrue(lines[0].endsWith("CRASHED"));
+
+		EventLog off = open(Level.OFF, 16);
+		off.log(LogEvent.TOO_FEW_MEMBERS, 1, 1);
+		off.close();
+		assertEquals(1, lines().length);
+	}
+
+	@Test
+	public void testDroppedEventsAreReported() {
+		EventLog log = open(Level.INFO, 4);
+		int events = 20000;
+		for (int i = 0; i < events; i++)
+			log.log(LogEvent.STEP, 1, 1, i);
+		log.close();
+		long written = 0;
+		long dropped = 0;
+		for (String line : lines()) {
+			if (line.startsWith("event log: "))
+				dropped += Long.parseLong(line.split(" ")[2]);
+			else
+				written++;
+		}
+		assertEquals(events, written + dropped);
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		EventLog log = open(Level.INFO, 1 << 16);
+		int producers = 4;
+		int events = 5000;
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int process = p;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < events; i++)
+					log.log(LogEvent.STEP, process, process, i);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		log.close();
+		assertEquals(0, log.dropped());
+		String[] lines = lines();
+		assertEquals(producers * events, lines.length);
+		// each event is written once, in order for each producer
+		Set<String> seen = new HashSet<>();
+		int[] last = new int[producers];
+		for (String line : lines) {
+			String[] fields = line.split(" ");
+			int process = Integer.parseInt(fields[1].substring(2));
+			int step = Integer.parseInt(fields[4].substring(5));
+			assertTrue(seen.add(process + ":" + step));
+			assertEquals(last[process]++, step);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package test_logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import reliable_multicast.logging.EventLog;
+import reliable_multicast.logging.Level;
+import reliable_multicast.logging.LogEvent;
+import reliable_multicast.logging.TraceAnalyzer;
+import reliable_multicast.logging.TraceEntry;
+import reliable_multicast.logging.TraceReader;
+import reliable_multicast.logging.TraceWriter;
+
+public class TestTraceAnalyzer {
+
+	private static File write(byte[] content, String suffix) throws IOException {
+		File file = File.createTempFile("analyzer", suffix);
+		file.deleteOnExit();
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+		return file;
+	}
+
+	// log the same events on the console and into a trace
+	private static byte[] trace(ByteArrayOutputStream console) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EventLog log = new EventLog(Level.INFO, 64,
+				new PrintStream(console), new TraceWriter(bytes), "trace");
+		log.log(LogEvent.JOIN_REQUEST, "gm", "part1");
+		log.log(LogEvent.STARTED_VIEW_CHANGE, 1, 1, 2);
+		log.log(LogEvent.DELIVERED_MESSAGE, 1, 2, "p2m0:v2");
+		log.log(LogEvent.CRASHED_SENDER, 0, 0, 3, 4);
+		log.log(LogEvent.CAN_SEND, -1, -1);
+		log.close();
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testTraceMatchesConsole() throws IOException {
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		byte[] trace = trace(console);
+		String[] lines = console.toString().split("\n");
+		TraceReader reader = new TraceReader(new ByteArrayInputStream(trace));
+		for (String line : lines)
+			assertEquals(line, reader.next().toString());
+		assertNull(reader.next());
+	}
+
+	@Test
+	public void testTraceIsSmallerThanConsole() throws IOException {
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EventLog log = new EventLog(Level.INFO, 4096,
+				new PrintStream(console), new TraceWriter(bytes), "trace");
+		for (int i = 0; i < 1000; i++)
+			log.log(LogEvent.DELIVERED_MESSAGE, 1, 2, "p2m" + i + ":v2");
+		log.close();
+		assertTrue(bytes.size() * 2 < console.size());
+	}
+
+	@Test
+	public void testTruncatedTrace() throws IOException {
+		byte[] trace = trace(new ByteArrayOutputStream());
+		TraceReader reader = new TraceReader(new ByteArrayInputStream(
+				Arrays.copyOf(trace, trace.length - 2)));
+		int entries = 0;
+		while (reader.next() != null)
+			entries++;
+		assertEquals(4, entries);
+	}
+
+	@Test
+	public void testMergeByTime() throws IOException {
+		File first = write(("10 P-1 P-1 INFO can_send\n" +
+				"not an event\n" +
+				"30 P-1 P-2 delivered_message p2m0:v1\n")
+				.getBytes(StandardCharsets.UTF_8), ".log");
+		File second = write(("20 P-2 P-2 multicast_message p2m0:v1\n" +
+				"30 P-2 P-2 delivered_message p2m0:v1\n")
+				.getBytes(StandardCharsets.UTF_8), ".log");
+		List<TraceEntry> merged = new ArrayList<>();
+		new TraceAnalyzer(Arrays.asList(first, second)).merge(merged::add);
+		assertEquals(4, merged.size());
+		assertEquals(Arrays.asList(10L, 20L, 30L, 30L), Arrays.asList(
+				merged.get(0).time, merged.get(1).time,
+				merged.get(2).time, merged.get(3).time));
+		// same time, order of the inputs
+		assertEquals("1", merged.get(2).process);
+		assertEquals("delivered_message", merged.get(3).event());
+
+		StringWriter msc = new StringWriter();
+		StringWriter csv = new StringWriter();
+		new TraceAnalyzer(Arrays.asList(first, second)).analyze(msc, csv, null);
+		String[] chart = msc.toString().split("\n");
+		assertEquals("msc {", chart[0]);
+		assertEquals("\"P-1\",\"P-2\";", chart[1]);
+		assertEquals("\"P-1\"<=\"P-1\" [label=\"INFO can_send\"];", chart[2]);
+		assertEquals("}", chart[chart.length - 1]);
+		List<String> rows = Arrays.asList(csv.toString().split("\n"));
+		assertEquals("process,event,count,first,last", rows.get(0));
+		assertTrue(rows.contains("2,delivered_message,1,30,30"));
+		assertTrue(rows.contains("1,can_send,1,10,10"));
+	}
+
+	@Test
+	public void testUnsortedInput() throws IOException {
+		// consoles of two nodes concatenated in a single log
+		File log = write(("100 P-1 P-1 INFO can_send\n" +
+				"300 P-1 P-2 delivered_message p2m0:v1\n" +
+				"200 P-2 P-2 multicast_message p2m0:v1\n" +
+				"400 P-2 P-2 delivered_message p2m0:v1\n")
+				.getBytes(StandardCharsets.UTF_8), ".log");
+		List<TraceEntry> merged = new ArrayList<>();
+		new TraceAnalyzer(Collections.singletonList(log)).merge(merged::add);
+		assertEquals(Arrays.asList(100L, 200L, 300L, 400L), Arrays.asList(
+				merged.get(0).time, merged.get(1).time,
+				merged.get(2).time, merged.get(3).time));
+
+		StringWriter msc = new StringWriter();
+		StringWriter output = new StringWriter();
+		new TraceAnalyzer(Collections.singletonList(log))
+				.analyze(msc, null, output);
+		String[] lines = output.toString().split("\n");
+		assertEquals(4, lines.length);
+		assertTrue(lines[1].startsWith("200 P-2 P-2 multicast_message"));
+		String[] chart = msc.toString().split("\n");
+		assertEquals("\"P-2\"<=\"P-2\" [label=\"multicast_message " +
+				"p2m0:v1\"];", chart[3]);
+	}
+
+	@Test
+	public void testMergeTraceAndLog() throws IOException {
+		File trace = write(trace(new ByteArrayOutputStream()), ".trace");
+		File log = write("0 P-gm P-gm INFO Group_manager_initiated\n"
+				.getBytes(StandardCharsets.UTF_8), ".log");
+		StringWriter merged = new StringWriter();
+		new TraceAnalyzer(Arrays.asList(trace, log)).analyze(null, null, merged);
+		List<String> lines = Arrays.asList(merged.toString().split("\n"));
+		assertEquals(6, lines.size());
+		assertTrue(lines.get(0).endsWith("Group_manager_initiated"));
+		List<Long> times = new ArrayList<>();
+		for (String line : lines)
+			times.add(Long.parseLong(line.split(" ")[0]));
+		List<Long> sorted = new ArrayList<>(times);
+		Collections.sort(sorted);
+		assertEquals(sorted, times);
+	}
+}
@@ -2,13 +2,18 @@ package test_messages;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Test;
 
+import akka.util.ByteString;
+
 import reliable_multicast.messages.Message;
 
 public class TestMessage {
@@ -59,4 +64,31 @@ public class TestMessage {
 		assertTrue(hs.size() == previousSize);
 	}
 
+	@Test
+	public void testPayloadSharedByStableCopy() {
+		ByteString payload = ByteString.fromString("payload");
+		Message m1 = new Message(0, 1, -1, false, payload);
+		Message m2 = new Message(m1, true);
+		assertSame(m1.payloads, m2.payloads);
+	}
+
+	@Test
+	public void testPayloadNotInEquality() {
+		Message m1 = new Message(0, 1, -1, false,
+				ByteString.fromString("a"));
+		Message m2 = new Message(0, 1, -1, false);
+		assertEquals(m1, m2);
+		assertTrue(m2.payloads.get(0).isEmpty());
+	}
+
+	@Test
+	public void testBatchKeepsOrder() {
+		List<ByteString> batch = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			batch.add(ByteString.fromString("p" + i));
+		Message m1 = new Message(0, 1, -1, false, batch);
+		assertEquals(batch, m1.payloads);
+		assertEquals(batch, new Message(m1, true).payloads);
+	}
+
 }
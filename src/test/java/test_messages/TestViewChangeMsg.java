@@ -0,0 +1,89 @@
+package test_messages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import reliable_multicast.View;
+import reliable_multicast.messages.ViewChangeMsg;
+
+public class TestViewChangeMsg {
+
+	private static ActorSystem system;
+	private static ActorRef gm;
+	private static ActorRef a;
+	private static ActorRef b;
+	private static ActorRef c;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("views");
+		gm = new TestKit(system).getRef();
+		a = new TestKit(system).getRef();
+		b = new TestKit(system).getRef();
+		c = new TestKit(system).getRef();
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void testDeltaCarriesChangesOnly() {
+		View previous = new View(3, Arrays.asList(gm, a, b),
+				Arrays.asList(0, 1, 2));
+		View next = new View(4, Arrays.asList(gm, a, c),
+				Arrays.asList(0, 1, 3));
+		ViewChangeMsg delta = new ViewChangeMsg(previous, next);
+		assertEquals(4, delta.id);
+		assertEquals(3, delta.previousId);
+		assertEquals(Arrays.asList(c), delta.joined);
+		assertEquals(Arrays.asList(3), delta.joinedIds);
+		assertEquals(Arrays.asList(b), delta.left);
+		assertEquals(Arrays.asList(2), delta.leftIds);
+		assertNull(delta.view);
+	}
+
+	@Test
+	public void testApplyDelta() {
+		View previous = new View(3, Arrays.asList(gm, a, b),
+				Arrays.asList(0, 1, 2));
+		View next = new View(4, Arrays.asList(gm, a, c),
+				Arrays.asList(0, 1, 3));
+		View applied = new ViewChangeMsg(previous, next).apply(previous);
+		assertEquals(next, applied);
+		assertEquals(next.getMembersIds(), applied.getMembersIds());
+		// the view changed already installed is kept
+		assertTrue(new ViewChangeMsg(previous, next).apply(next) == next);
+	}
+
+	@Test
+	public void testApplyDeltaOnGap() {
+		View old = new View(2, Arrays.asList(gm, a), Arrays.asList(0, 1));
+		View previous = new View(3, Arrays.asList(gm, a, b),
+				Arrays.asList(0, 1, 2));
+		View next = new View(4, Arrays.asList(gm, a, b, c),
+				Arrays.asList(0, 1, 2, 3));
+		assertNull(new ViewChangeMsg(previous, next).apply(old));
+	}
+
+	@Test
+	public void testApplySnapshot() {
+		View old = new View(-1);
+		View next = new View(4, Arrays.asList(gm, a, c),
+				Arrays.asList(0, 1, 3));
+		ViewChangeMsg snapshot = new ViewChangeMsg(next);
+		assertTrue(snapshot.isSnapshot());
+		assertTrue(snapshot.apply(old) == next);
+	}
+}
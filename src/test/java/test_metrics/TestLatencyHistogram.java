@@ -0,0 +1,74 @@
+package test_metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import reliable_multicast.metrics.LatencyHistogram;
+
+public class TestLatencyHistogram {
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.percentile(0.99));
+		assertEquals(0, histogram.mean(), 0);
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 4; i++)
+			histogram.record(i);
+		assertEquals(4, histogram.count());
+		assertEquals(2, histogram.percentile(0.5));
+		assertEquals(4, histogram.percentile(1));
+		assertEquals(4, histogram.max());
+		assertEquals(2.5, histogram.mean(), 0);
+	}
+
+	@Test
+	public void testPercentilesWithinBucketError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(7);
+		List<Long> values = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			long value = (long) Math.exp(random.nextDouble() * 20);
+			values.add(value);
+			histogram.record(value);
+		}
+		values.sort(null);
+		for (double quantile : new double[] {0.5, 0.9, 0.99}) {
+			long exact = values.get((int) Math.ceil(quantile * values.size()) - 1);
+			long estimate = histogram.percentile(quantile);
+			assertTrue(estimate >= exact);
+			assertTrue(estimate <= exact + exact / 8 + 1);
+		}
+		assertEquals((long) values.get(values.size() - 1), histogram.max());
+		assertEquals(histogram.max(), histogram.percentile(1));
+	}
+
+	@Test
+	public void testConcurrentRecords() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10000; i++)
+					histogram.record(i);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(40000, histogram.count());
+		assertEquals(9999, histogram.max());
+	}
+}
@@ -0,0 +1,100 @@
+package test_metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import reliable_multicast.metrics.GroupManagerMetrics;
+import reliable_multicast.metrics.ParticipantMetrics;
+
+public class TestParticipantMetrics {
+
+	private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+	private static ParticipantMetrics.Gauges gauges(int value) {
+		return new ParticipantMetrics.Gauges(() -> value, () -> value + 1,
+				() -> value + 2, () -> value + 3);
+	}
+
+	@Test
+	public void testAttributes() throws JMException {
+		ParticipantMetrics metrics = new ParticipantMetrics(gauges(5));
+		metrics.register("akka.tcp://test@127.0.0.1:10001/user/p1");
+		ObjectName name = metrics.name();
+		try {
+			assertEquals("Participant", name.getKeyProperty("type"));
+			metrics.multicastSent();
+			metrics.delivered();
+			metrics.delivered();
+			metrics.duplicateSuppressed();
+			metrics.flushReceived();
+			metrics.heartbeatSent();
+			metrics.viewInstalled(TimeUnit.MILLISECONDS.toNanos(3));
+			assertEquals(1L, server.getAttribute(name, "MulticastsSent"));
+			assertEquals(2L, server.getAttribute(name, "Deliveries"));
+			assertEquals(1L, server.getAttribute(name, "DuplicatesSuppressed"));
+			assertEquals(1L, server.getAttribute(name, "FlushesReceived"));
+			assertEquals(1L, server.getAttribute(name, "ViewChanges"));
+			assertEquals(1L, server.getAttribute(name, "HeartbeatsSent"));
+			assertEquals(5, server.getAttribute(name, "BufferedMessages"));
+			assertEquals(6, server.getAttribute(name, "CollectedFlushes"));
+			assertEquals(7, server.getAttribute(name, "ViewId"));
+			assertEquals(8, server.getAttribute(name, "TempViewId"));
+			assertEquals(1L, server.getAttribute(name, "ViewChangeCount"));
+			assertEquals(3.0, (double) server.getAttribute(name,
+					"ViewChangeMax"), 0);
+			assertEquals(3.0, (double) server.getAttribute(name,
+					"ViewChangeP99"), 0);
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void testGroupManager() throws JMException {
+		GroupManagerMetrics metrics = new GroupManagerMetrics(gauges(0),
+				() -> 4);
+		metrics.register("akka://test/user/gm");
+		try {
+			assertEquals("GroupManager",
+					metrics.name().getKeyProperty("type"));
+			assertEquals(4, server.getAttribute(metrics.name(),
+					"MonitoredMembers"));
+		} finally {
+			metrics.unregister();
+		}
+	}
+
+	@Test
+	public void testSameAddress() throws JMException {
+		String address = "akka://test/user/p2";
+		ParticipantMetrics first = new ParticipantMetrics(gauges(1));
+		ParticipantMetrics second = new ParticipantMetrics(gauges(2));
+		first.register(address);
+		try {
+			second.register(address);
+			fail("registered twice");
+		} catch (InstanceAlreadyExistsException e) {
+			// the first one is kept
+			assertEquals(1, server.getAttribute(first.name(),
+					"BufferedMessages"));
+		} finally {
+			second.unregister();
+			first.unregister();
+		}
+		// the address can be used again
+		second.register(address);
+		second.unregister();
+	}
+}
@@ -0,0 +1,176 @@
+package test_serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.serialization.Serializer;
+import akka.serialization.Serializers;
+import akka.testkit.javadsl.TestKit;
+import akka.util.ByteString;
+import reliable_multicast.View;
+import reliable_multicast.messages.AckMsg;
+import reliable_multicast.messages.AliveMsg;
+import reliable_multicast.messages.FlushMsg;
+import reliable_multicast.messages.JoinRequestMsg;
+import reliable_multicast.messages.Message;
+import reliable_multicast.messages.PingMsg;
+import reliable_multicast.messages.PingReqMsg;
+import reliable_multicast.messages.StableMsg;
+import reliable_multicast.messages.SuspicionMsg;
+import reliable_multicast.messages.SwimUpdate;
+import reliable_multicast.messages.ViewChangeMsg;
+import reliable_multicast.serialization.ProtocolSerializer;
+
+public class TestProtocolSerializer {
+
+	private static ActorSystem system;
+	private static Serialization serialization;
+	private static ActorRef a;
+	private static ActorRef b;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("serialization");
+		serialization = (Serialization) SerializationExtension.apply(system);
+		a = new TestKit(system).getRef();
+		b = new TestKit(system).getRef();
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	private Object roundTrip(Object message) {
+		Serializer serializer = serialization.findSerializerFor(message);
+		assertEquals(ProtocolSerializer.IDENTIFIER,
+				serializer.identifier());
+		byte[] bytes = serializer.toBinary(message);
+		return serialization.deserialize(bytes,
+				serializer.identifier(),
+				Serializers.manifestFor(serializer, message)).get();
+	}
+
+	private int protocolSize(Object message) {
+		return serialization.findSerializerFor(message)
+				.toBinary(message).length;
+	}
+
+	private int javaSize(Object message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(message);
+		out.close();
+		return bytes.size();
+	}
+
+	@Test
+	public void testMessageRoundTrip() {
+		Message message = new Message(3, 300, 7, true,
+				Arrays.asList(ByteString.fromString("first"),
+						ByteString.empty(),
+						ByteString.fromString("third")),
+				-1);
+		Message copy = (Message) roundTrip(message);
+		assertEquals(message, copy);
+		assertEquals(message.viewId, copy.viewId);
+		assertEquals(message.stable, copy.stable);
+		assertEquals(message.stableUpTo, copy.stableUpTo);
+		assertEquals(message.payloads, copy.payloads);
+		// multicasts issued by the nodes themselves
+		Message empty = new Message(3, 301, 7, false,
+				Collections.emptyList(), 299);
+		assertTrue(((Message) roundTrip(empty)).payloads.isEmpty());
+	}
+
+	@Test
+	public void testStableRoundTrip() {
+		StableMsg copy = (StableMsg) roundTrip(new StableMsg(2, 4, 99));
+		assertEquals(2, copy.senderID);
+		assertEquals(4, copy.viewId);
+		assertEquals(99, copy.stableUpTo);
+	}
+
+	@Test
+	public void testFlushRoundTrip() {
+		FlushMsg flush = new FlushMsg(5, 12, a);
+		assertEquals(flush, roundTrip(flush));
+	}
+
+	@Test
+	public void testViewChangeRoundTrip() {
+		View previous = new View(1, Arrays.asList(a), Arrays.asList(0));
+		View next = new View(2, Arrays.asList(a, b), Arrays.asList(0, 1));
+		ViewChangeMsg snapshot = new ViewChangeMsg(next);
+		ViewChangeMsg delta = new ViewChangeMsg(previous, next);
+		assertEquals(snapshot, roundTrip(snapshot));
+		assertEquals(delta, roundTrip(delta));
+		assertEquals(next, ((ViewChangeMsg) roundTrip(delta))
+				.apply(previous));
+	}
+
+	@Test
+	public void testSmallMessagesRoundTrip() {
+		assertTrue(roundTrip(new AliveMsg()) instanceof AliveMsg);
+		assertEquals(8, ((JoinRequestMsg) roundTrip(
+				new JoinRequestMsg(8))).idAssigned);
+		assertEquals(250, ((JoinRequestMsg) roundTrip(
+				new JoinRequestMsg(8, 250))).groupId);
+	}
+
+	private static void assertSameUpdates(List<SwimUpdate> expected,
+			List<SwimUpdate> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).member, actual.get(i).member);
+			assertEquals(expected.get(i).incarnation,
+					actual.get(i).incarnation);
+			assertEquals(expected.get(i).suspect, actual.get(i).suspect);
+		}
+	}
+
+	@Test
+	public void testSwimRoundTrip() {
+		List<SwimUpdate> updates = Arrays.asList(
+				new SwimUpdate(a, 3, true),
+				new SwimUpdate(b, 0, false));
+		PingMsg ping = (PingMsg) roundTrip(new PingMsg(7, updates));
+		assertEquals(7, ping.seq);
+		assertSameUpdates(updates, ping.updates);
+		PingReqMsg request = (PingReqMsg) roundTrip(
+				new PingReqMsg(8, b, Collections.emptyList()));
+		assertEquals(8, request.seq);
+		assertEquals(b, request.target);
+		assertTrue(request.updates.isEmpty());
+		AckMsg ack = (AckMsg) roundTrip(new AckMsg(9, updates));
+		assertEquals(9, ack.seq);
+		assertSameUpdates(updates, ack.updates);
+		SuspicionMsg suspicion = (SuspicionMsg) roundTrip(
+				new SuspicionMsg(updates.subList(0, 1)));
+		assertSameUpdates(updates.subList(0, 1), suspicion.updates);
+	}
+
+	@Test
+	public void testSmallerThanJavaSerialization() throws IOException {
+		Message message = new Message(3, 300, 7, false,
+				ByteString.fromString("payload"));
+		FlushMsg flush = new FlushMsg(5, 12, a);
+		assertTrue(protocolSize(message) * 10 < javaSize(message));
+		assertTrue(protocolSize(flush) < javaSize(flush));
+	}
+}
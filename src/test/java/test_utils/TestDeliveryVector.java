@@ -0,0 +1,48 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import reliable_multicast.utils.DeliveryVector;
+
+public class TestDeliveryVector {
+
+	@Test
+	public void testMissingProcess() {
+		DeliveryVector vector = new DeliveryVector();
+		assertEquals(DeliveryVector.NONE, vector.get(3));
+		assertEquals(DeliveryVector.NONE, vector.get(-1));
+		assertFalse(vector.contains(3));
+		assertTrue(vector.isNew(3, 0));
+	}
+
+	@Test
+	public void testSetAndCompare() {
+		DeliveryVector vector = new DeliveryVector();
+		vector.set(2, -1);
+		assertTrue(vector.contains(2));
+		assertEquals(-1, vector.get(2));
+		assertTrue(vector.isNew(2, 0));
+		vector.set(2, 5);
+		assertFalse(vector.isNew(2, 5));
+		assertFalse(vector.isNew(2, 4));
+		assertTrue(vector.isNew(2, 6));
+	}
+
+	@Test
+	public void testGrows() {
+		DeliveryVector vector = new DeliveryVector();
+		vector.set(1000, 7);
+		assertEquals(7, vector.get(1000));
+		assertEquals(DeliveryVector.NONE, vector.get(999));
+		assertEquals(DeliveryVector.NONE, vector.get(1001));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeProcessId() {
+		new DeliveryVector().set(-1, 0);
+	}
+}
@@ -0,0 +1,85 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import reliable_multicast.utils.FlushTracker;
+
+public class TestFlushTracker {
+
+	private static ActorSystem system;
+	private static ActorRef a;
+	private static ActorRef b;
+	private static ActorRef c;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("flushes");
+		a = new TestKit(system).getRef();
+		b = new TestKit(system).getRef();
+		c = new TestKit(system).getRef();
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void testCompleteOnceAllMembersFlushed() {
+		List<ActorRef> members = Arrays.asList(a, b, c);
+		FlushTracker tracker = new FlushTracker();
+		tracker.beginView(1, members);
+		assertTrue(tracker.add(1, a));
+		assertFalse(tracker.add(1, a));
+		assertTrue(tracker.add(1, b));
+		assertFalse(tracker.isComplete(1));
+		assertTrue(tracker.add(1, c));
+		assertTrue(tracker.isComplete(1));
+		assertFalse(tracker.isComplete(2));
+	}
+
+	@Test
+	public void testNonMembersIgnored() {
+		FlushTracker tracker = new FlushTracker();
+		tracker.beginView(1, Arrays.asList(a, b));
+		assertFalse(tracker.add(1, c));
+		assertEquals(0, tracker.received());
+	}
+
+	@Test
+	public void testEarlyFlushesCountedWhenViewBegins() {
+		FlushTracker tracker = new FlushTracker();
+		tracker.beginView(1, Arrays.asList(a, b, c));
+		assertFalse(tracker.add(2, a));
+		assertFalse(tracker.add(3, b));
+		tracker.beginView(2, Arrays.asList(a, b));
+		assertEquals(1, tracker.received());
+		assertTrue(tracker.add(2, b));
+		assertTrue(tracker.isComplete(2));
+		// flushes of view 2 are discarded, the one of view 3 kept
+		tracker.beginView(3, Arrays.asList(a, b));
+		assertEquals(1, tracker.received());
+	}
+
+	@Test
+	public void testOldFlushesDiscarded() {
+		FlushTracker tracker = new FlushTracker();
+		tracker.beginView(2, Arrays.asList(a, b));
+		assertFalse(tracker.add(1, a));
+		tracker.beginView(1, Arrays.asList(a));
+		assertEquals(2, tracker.viewId());
+		assertEquals(0, tracker.received());
+	}
+}
@@ -0,0 +1,89 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import reliable_multicast.utils.DetectorSettings;
+import reliable_multicast.utils.LivenessTracker;
+
+public class TestLivenessTracker {
+
+	private static ActorSystem system;
+	private static ActorRef node;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("liveness");
+		node = new TestKit(system).getRef();
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	// heartbeats every second
+	private static LivenessTracker tracker(boolean implicitHeartbeats) {
+		return new LivenessTracker(new DetectorSettings(8.0, 100, 50, 0,
+				1000, implicitHeartbeats, false, 300, 3, 3000, 8));
+	}
+
+	@Test
+	public void testSilentWithoutTraffic() {
+		LivenessTracker tracker = tracker(true);
+		tracker.monitor(node, 0);
+		assertFalse(tracker.isSilent(node, 500));
+		assertTrue(tracker.isSilent(node, 1000));
+		tracker.heard(node, 900);
+		assertFalse(tracker.isSilent(node, 1500));
+		assertTrue(tracker.isSilent(node, 1900));
+	}
+
+	@Test
+	public void testExplicitHeartbeatsOnly() {
+		LivenessTracker tracker = tracker(false);
+		tracker.monitor(node, 0);
+		assertTrue(tracker.isSilent(node, 0));
+		tracker.heard(node, 15000);
+		assertFalse(tracker.isAvailable(node, 15000));
+		tracker.heartbeat(node, 15000);
+		assertTrue(tracker.isAvailable(node, 15000));
+	}
+
+	@Test
+	public void testNoSuspicionAfterLoad() {
+		LivenessTracker tracker = tracker(true);
+		tracker.monitor(node, 0);
+		// a message every millisecond, checked every second
+		for (long time = 1; time < 10000; time++) {
+			tracker.heard(node, time);
+			if (time % 1000 == 0)
+				assertTrue(tracker.isAvailable(node, time));
+		}
+		// the load stops: a silence of an interval is normal
+		assertTrue(tracker.isSilent(node, 11000));
+		assertTrue(tracker.isAvailable(node, 11000));
+		assertFalse(tracker.isAvailable(node, 15000));
+	}
+
+	@Test
+	public void testUnmonitored() {
+		LivenessTracker tracker = tracker(true);
+		tracker.monitor(node, 0);
+		assertEquals(1, tracker.size());
+		tracker.forget(node);
+		assertEquals(0, tracker.size());
+		assertFalse(tracker.isMonitored(node));
+		tracker.heard(node, 100);
+		assertTrue(tracker.isAvailable(node, 100000));
+		assertTrue(tracker.isSilent(node, 100));
+	}
+}
@@ -0,0 +1,87 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import reliable_multicast.utils.MembershipRegistry;
+
+public class TestMembershipRegistry {
+
+	private static ActorSystem system;
+	private static ActorRef a;
+	private static ActorRef b;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("registry");
+		a = new TestKit(system).getRef();
+		b = new TestKit(system).getRef();
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	@Test
+	public void testLookupBothWays() {
+		MembershipRegistry registry = new MembershipRegistry();
+		assertTrue(registry.addIdRefAssoc(1, a));
+		assertTrue(registry.addIdRefAssoc(2, b));
+		assertTrue(registry.getActorById(1).equals(a));
+		assertEquals(Integer.valueOf(2), registry.getIdByActor(b));
+		registry.removeIdRefEntry(1);
+		assertNull(registry.getActorById(1));
+		assertNull(registry.getIdByActor(a));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testAssociationIsBijective() {
+		MembershipRegistry registry = new MembershipRegistry();
+		assertTrue(registry.addIdRefAssoc(1, a));
+		assertFalse(registry.addIdRefAssoc(1, b));
+		assertFalse(registry.addIdRefAssoc(2, a));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testVersionChangesOnUpdate() {
+		MembershipRegistry registry = new MembershipRegistry();
+		long version = registry.version();
+		registry.addIdRefAssoc(1, a);
+		assertTrue(registry.version() != version);
+		version = registry.version();
+		// rejected updates leave the version as it is
+		registry.addIdRefAssoc(1, b);
+		registry.removeIdRefEntry(5);
+		assertEquals(version, registry.version());
+		registry.removeIdRefEntry(1);
+		assertTrue(registry.version() != version);
+	}
+
+	@Test
+	public void testSnapshots() {
+		MembershipRegistry registry = new MembershipRegistry();
+		registry.addIdRefAssoc(1, a);
+		Set<ActorRef> actors = registry.getProcessesActors();
+		assertTrue(actors == registry.getProcessesActors());
+		registry.addIdRefAssoc(2, b);
+		assertEquals(1, actors.size());
+		assertEquals(2, registry.getProcessesActors().size());
+		Set<Integer> ids = registry.getIdsByActors(Arrays.asList(a, b));
+		assertTrue(ids.contains(1) && ids.contains(2));
+	}
+}
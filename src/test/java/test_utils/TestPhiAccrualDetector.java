@@ -0,0 +1,70 @@
+package test_utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import reliable_multicast.utils.PhiAccrualDetector;
+
+public class TestPhiAccrualDetector {
+
+	private PhiAccrualDetector regularDetector() {
+		PhiAccrualDetector detector =
+				new PhiAccrualDetector(8.0, 100, 50, 0, 1000);
+		// heartbeats every second
+		for (long time = 0; time <= 10000; time += 1000)
+			detector.heartbeat(time);
+		return detector;
+	}
+
+	@Test
+	public void testNoSuspicionBeforeFirstHeartbeat() {
+		PhiAccrualDetector detector =
+				new PhiAccrualDetector(8.0, 100, 50, 0, 1000);
+		assertTrue(detector.phi(100000) == 0.0);
+		assertTrue(detector.isAvailable(100000));
+	}
+
+	@Test
+	public void testAvailableWithRegularHeartbeats() {
+		PhiAccrualDetector detector = regularDetector();
+		assertTrue(detector.isAvailable(10500));
+		assertTrue(detector.isAvailable(11000));
+	}
+
+	@Test
+	public void testSuspectedAfterLongSilence() {
+		PhiAccrualDetector detector = regularDetector();
+		assertFalse(detector.isAvailable(15000));
+	}
+
+	@Test
+	public void testPhiGrowsWithSilence() {
+		PhiAccrualDetector detector = regularDetector();
+		double previous = detector.phi(10000);
+		for (long time = 10100; time < 13000; time += 100) {
+			double phi = detector.phi(time);
+			assertTrue(phi >= previous);
+			previous = phi;
+		}
+	}
+
+	@Test
+	public void testAcceptablePauseDelaysSuspicion() {
+		PhiAccrualDetector detector =
+				new PhiAccrualDetector(8.0, 100, 50, 5000, 1000);
+		for (long time = 0; time <= 10000; time += 1000)
+			detector.heartbeat(time);
+		assertTrue(detector.isAvailable(15000));
+		assertFalse(detector.isAvailable(20000));
+	}
+
+	@Test
+	public void testHeartbeatResetsSuspicion() {
+		PhiAccrualDetector detector = regularDetector();
+		assertFalse(detector.isAvailable(15000));
+		detector.heartbeat(15000);
+		assertTrue(detector.isAvailable(15100));
+	}
+}
@@ -0,0 +1,171 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import reliable_multicast.messages.SwimUpdate;
+import reliable_multicast.utils.SwimMembership;
+
+public class TestSwimMembership {
+
+	private static ActorSystem system;
+	private static ActorRef self;
+	private static List<ActorRef> others;
+
+	@BeforeClass
+	public static void setup() {
+		system = ActorSystem.create("swim");
+		self = new TestKit(system).getRef();
+		others = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			others.add(new TestKit(system).getRef());
+	}
+
+	@AfterClass
+	public static void teardown() {
+		TestKit.shutdownActorSystem(system);
+	}
+
+	private SwimMembership membership() {
+		SwimMembership membership = new SwimMembership(self, new Random(1));
+		List<ActorRef> members = new ArrayList<>(others);
+		members.add(self);
+		membership.setMembers(members);
+		return membership;
+	}
+
+	@Test
+	public void testEveryMemberProbedInEachPass() {
+		SwimMembership membership = membership();
+		assertEquals(others.size(), membership.size());
+		for (int pass = 0; pass < 3; pass++) {
+			Set<ActorRef> probed = new HashSet<>();
+			for (int i = 0; i < others.size(); i++)
+				probed.add(membership.nextTarget());
+			assertEquals(new HashSet<>(others), probed);
+		}
+	}
+
+	@Test
+	public void testNoTargetAlone() {
+		SwimMembership membership = new SwimMembership(self, new Random(1));
+		membership.setMembers(Arrays.asList(self));
+		assertNull(membership.nextTarget());
+	}
+
+	@Test
+	public void testRandomMembers() {
+		SwimMembership membership = membership();
+		List<ActorRef> chosen = membership.randomMembers(3, others.get(0));
+		assertEquals(3, chosen.size());
+		assertFalse(chosen.contains(others.get(0)));
+		assertEquals(4, membership.randomMembers(10, others.get(0)).size());
+	}
+
+	@Test
+	public void testSuspicionExpires() {
+		SwimMembership membership = membership();
+		ActorRef member = others.get(1);
+		SwimUpdate suspicion = membership.suspect(member, 1000);
+		assertTrue(suspicion.suspect);
+		assertTrue(membership.isSuspected(member));
+		// already suspected
+		assertNull(membership.suspect(member, 1100));
+		assertFalse(membership.isExpired(member, 3999, 3000));
+		assertTrue(membership.isExpired(member, 4000, 3000));
+		assertEquals(Arrays.asList(member), membership.expired(4000, 3000));
+	}
+
+	@Test
+	public void testRefutationOverridesSuspicion() {
+		SwimMembership membership = membership();
+		ActorRef member = others.get(2);
+		membership.suspect(member, 0);
+		// same incarnation: the suspicion holds
+		assertNull(membership.apply(new SwimUpdate(member, 0, false), 10));
+		assertTrue(membership.isSuspected(member));
+		assertTrue(membership.apply(
+				new SwimUpdate(member, 1, false), 10) != null);
+		assertFalse(membership.isSuspected(member));
+		assertTrue(membership.expired(100000, 1).isEmpty());
+		// an old suspicion is ignored
+		assertNull(membership.apply(new SwimUpdate(member, 0, true), 20));
+		assertFalse(membership.isSuspected(member));
+	}
+
+	@Test
+	public void testSelfRefutes() {
+		SwimMembership membership = membership();
+		SwimUpdate refutation = membership.apply(
+				new SwimUpdate(self, 0, true), 0);
+		assertEquals(self, refutation.member);
+		assertFalse(refutation.suspect);
+		assertEquals(1, refutation.incarnation);
+		assertEquals(1, membership.incarnation());
+		// the refutation is gossiped
+		boolean gossiped = false;
+		for (SwimUpdate update : membership.piggyback(8))
+			gossiped |= update.member.equals(self) && !update.suspect;
+		assertTrue(gossiped);
+		// a suspicion of a previous incarnation needs no refutation
+		assertNull(membership.apply(new SwimUpdate(self, 0, true), 0));
+	}
+
+	@Test
+	public void testUpdatesGossipedLogarithmically() {
+		SwimMembership membership = membership();
+		membership.suspect(others.get(3), 0);
+		int transmissions = 0;
+		while (!membership.piggyback(8).isEmpty())
+			transmissions++;
+		// 5 members besides the node, 3 bits
+		assertEquals(9, transmissions);
+	}
+
+	@Test
+	public void testPiggybackRotates() {
+		SwimMembership membership = membership();
+		for (ActorRef member : others)
+			membership.suspect(member, 0);
+		Set<ActorRef> first = new HashSet<>();
+		for (SwimUpdate update : membership.piggyback(2))
+			first.add(update.member);
+		Set<ActorRef> second = new HashSet<>();
+		for (SwimUpdate update : membership.piggyback(2))
+			second.add(update.member);
+		assertEquals(2, first.size());
+		first.retainAll(second);
+		assertTrue(first.isEmpty());
+	}
+
+	@Test
+	public void testRemovedMembersForgotten() {
+		SwimMembership membership = membership();
+		ActorRef member = others.get(4);
+		membership.suspect(member, 0);
+		List<ActorRef> members = new ArrayList<>(others);
+		members.remove(member);
+		membership.setMembers(members);
+		assertFalse(membership.isSuspected(member));
+		assertTrue(membership.piggyback(8).isEmpty());
+		assertNull(membership.apply(new SwimUpdate(member, 5, true), 0));
+		membership.clear();
+		assertEquals(0, membership.size());
+	}
+}
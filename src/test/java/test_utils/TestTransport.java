@@ -0,0 +1,44 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.typesafe.config.Config;
+
+import reliable_multicast.utils.Transport;
+
+public class TestTransport {
+
+	@Test
+	public void testFromName() {
+		assertEquals(Transport.CLASSIC, Transport.fromName(""));
+		assertEquals(Transport.CLASSIC, Transport.fromName(null));
+		assertEquals(Transport.ARTERY_TCP, Transport.fromName("artery-tcp"));
+		assertEquals(Transport.ARTERY_UDP, Transport.fromName("aeron-udp"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownName() {
+		Transport.fromName("udp");
+	}
+
+	@Test
+	public void testArteryConfig() {
+		Config config = Transport.ARTERY_TCP.config("127.0.0.1", 0);
+		assertTrue(config.getBoolean("akka.remote.artery.enabled"));
+		assertEquals("tcp", config.getString("akka.remote.artery.transport"));
+		assertEquals(0, config.getInt("akka.remote.artery.canonical.port"));
+		assertEquals("akka", Transport.ARTERY_TCP.protocol());
+	}
+
+	@Test
+	public void testClassicConfig() {
+		Config config = Transport.CLASSIC.config("127.0.0.1", 10000);
+		assertFalse(config.getBoolean("akka.remote.artery.enabled"));
+		assertEquals(10000, config.getInt("akka.remote.netty.tcp.port"));
+		assertEquals("akka.tcp", Transport.CLASSIC.protocol());
+	}
+}
@@ -0,0 +1,114 @@
+package test_utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import reliable_multicast.messages.Message;
+import reliable_multicast.utils.UnstableBuffer;
+
+public class TestUnstableBuffer {
+
+	private List<Integer> ids(UnstableBuffer buffer, int senderID) {
+		List<Integer> ids = new ArrayList<>();
+		for (Message message : buffer) {
+			if (message.senderID == senderID)
+				ids.add(message.messageID);
+		}
+		return ids;
+	}
+
+	@Test
+	public void testAddAndGet() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		Message message = new Message(1, 3, 0, false);
+		assertTrue(buffer.add(message));
+		assertFalse(buffer.add(new Message(1, 3, 0, false)));
+		assertTrue(buffer.get(1, 3) == message);
+		assertNull(buffer.get(1, 2));
+		assertNull(buffer.get(2, 3));
+		assertTrue(buffer.contains(new Message(1, 3, 0, true)));
+		assertEquals(1, buffer.size());
+	}
+
+	@Test
+	public void testInOrderIteration() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		buffer.add(new Message(1, 5, 0, false));
+		buffer.add(new Message(2, 0, 0, false));
+		buffer.add(new Message(1, 2, 0, false));
+		buffer.add(new Message(1, 4, 0, false));
+		assertEquals(3, ids(buffer, 1).size());
+		assertEquals(Integer.valueOf(2), ids(buffer, 1).get(0));
+		assertEquals(Integer.valueOf(4), ids(buffer, 1).get(1));
+		assertEquals(Integer.valueOf(5), ids(buffer, 1).get(2));
+		assertEquals(1, ids(buffer, 2).size());
+	}
+
+	@Test
+	public void testRemove() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		for (int i = 0; i < 4; i++)
+			buffer.add(new Message(1, i, 0, false));
+		assertTrue(buffer.remove(new Message(1, 0, 0, true)));
+		assertFalse(buffer.remove(new Message(1, 0, 0, true)));
+		assertTrue(buffer.remove(1, 2));
+		assertEquals(2, buffer.size());
+		assertEquals(2, ids(buffer, 1).size());
+		assertEquals(Integer.valueOf(1), ids(buffer, 1).get(0));
+		assertEquals(Integer.valueOf(3), ids(buffer, 1).get(1));
+	}
+
+	@Test
+	public void testRemoveUpTo() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		for (int i = 0; i < 10; i++) {
+			buffer.add(new Message(1, i, 0, false));
+			buffer.add(new Message(2, i, 0, false));
+		}
+		buffer.removeUpTo(1, 6);
+		assertEquals(13, buffer.size());
+		assertEquals(3, ids(buffer, 1).size());
+		assertEquals(Integer.valueOf(7), ids(buffer, 1).get(0));
+		assertEquals(10, ids(buffer, 2).size());
+		// trimming past the last message empties the ring
+		buffer.removeUpTo(1, 100);
+		assertEquals(0, ids(buffer, 1).size());
+		assertTrue(buffer.add(new Message(1, 101, 0, false)));
+		assertEquals(11, buffer.size());
+	}
+
+	@Test
+	public void testGrowsPastInitialCapacity() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		for (int i = 0; i < 1000; i++)
+			buffer.add(new Message(1, i, 0, false));
+		assertEquals(1000, buffer.size());
+		List<Integer> ids = ids(buffer, 1);
+		for (int i = 0; i < 1000; i++)
+			assertEquals(Integer.valueOf(i), ids.get(i));
+		assertTrue(buffer.get(1, 999) != null);
+	}
+
+	@Test
+	public void testIteratorRemove() {
+		UnstableBuffer buffer = new UnstableBuffer();
+		for (int i = 0; i < 8; i++)
+			buffer.add(new Message(1 + i % 2, i, i / 4, false));
+		Iterator<Message> iter = buffer.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().viewId == 0)
+				iter.remove();
+		}
+		assertEquals(4, buffer.size());
+		for (Message message : buffer)
+			assertEquals(1, message.viewId);
+	}
+}